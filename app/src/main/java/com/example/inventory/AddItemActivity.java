@@ -11,14 +11,27 @@ import android.graphics.Bitmap;
 import android.text.Editable;
 import android.text.TextWatcher;
 import com.google.zxing.BarcodeFormat;
-import com.journeyapps.barcodescanner.BarcodeEncoder;
+import com.example.inventory.barcode.BarcodeBitmapCache;
 
 
 import com.example.inventory.model.InventoryItem;
 import com.example.inventory.model.Batch; // IMPORT BATCH MODEL
 import com.example.inventory.db.LocalDatabaseHelper; // IMPORT SQLITE HELPER
+import com.example.inventory.repository.DateAddedMigration;
+import com.example.inventory.repository.FifoBatches;
+import com.example.inventory.repository.InventoryStats;
+import com.example.inventory.repository.StockMovementEngine;
+import com.example.inventory.repository.StockStatus;
+import com.example.inventory.repository.TransactionRollups;
 import com.google.android.material.textfield.TextInputEditText;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -34,9 +47,13 @@ public class AddItemActivity extends AppCompatActivity {
 
     private String existingItemId = null;
     private String originalDate = null;
+    private long originalDateMillis = 0;
     private String originalBarcode = "";
     private int currentMinStock = 5;
 
+    // Count the form was opened with; a different one on save is a stock movement
+    private int originalQty = 0;
+
     private void generateBarcode(String text) {
         if (text.isEmpty()) {
             ivBarcodePreview.setVisibility(View.GONE);
@@ -45,9 +62,9 @@ public class AddItemActivity extends AppCompatActivity {
         }
 
         try {
-            BarcodeEncoder barcodeEncoder = new BarcodeEncoder();
-            // Encode the text into a CODE_128 Barcode (Standard retail barcode)
-            Bitmap bitmap = barcodeEncoder.encodeBitmap(text, BarcodeFormat.CODE_128, 600, 200);
+            // Encode the text into a CODE_128 Barcode (Standard retail barcode). Runs per keystroke,
+            // so partial input isn't cached; the detail screen caches the saved one
+            Bitmap bitmap = BarcodeBitmapCache.get().peekOrRender(text, BarcodeFormat.CODE_128, 600, 200);
 
             ivBarcodePreview.setImageBitmap(bitmap);
             ivBarcodePreview.setVisibility(View.VISIBLE);
@@ -64,7 +81,7 @@ public class AddItemActivity extends AppCompatActivity {
         setContentView(R.layout.activity_add_item);
 
         db = FirebaseFirestore.getInstance();
-        localDb = new LocalDatabaseHelper(this); // INIT SQLITE
+        localDb = LocalDatabaseHelper.get(this); // INIT SQLITE
 
         etName = findViewById(R.id.etName);
         etCategory = findViewById(R.id.etCategory);
@@ -105,7 +122,8 @@ public class AddItemActivity extends AppCompatActivity {
                 etCategory.setText(getIntent().getStringExtra("category"));
             }
 
-            etQty.setText(String.valueOf(getIntent().getIntExtra("qty", 0)));
+            originalQty = getIntent().getIntExtra("qty", 0);
+            etQty.setText(String.valueOf(originalQty));
             etPrice.setText(String.valueOf(getIntent().getDoubleExtra("price", 0.0)));
 
             if (getIntent().hasExtra("sale")) {
@@ -119,6 +137,7 @@ public class AddItemActivity extends AppCompatActivity {
             if(getIntent().hasExtra("dateAdded")){
                 originalDate = getIntent().getStringExtra("dateAdded");
             }
+            originalDateMillis = getIntent().getLongExtra("dateAddedMillis", 0);
             if(getIntent().hasExtra("barcode")){
                 originalBarcode = getIntent().getStringExtra("barcode");
                 etBarcode.setText(originalBarcode); // This will automatically trigger the image generation!
@@ -154,48 +173,98 @@ public class AddItemActivity extends AppCompatActivity {
         double sale = saleStr.isEmpty() ? 0.0 : Double.parseDouble(saleStr);
 
         String dateToSave;
+        long dateMillisToSave;
         if (originalDate != null && !originalDate.isEmpty()) {
             dateToSave = originalDate;
+            dateMillisToSave = (originalDateMillis != 0) ? originalDateMillis : DateAddedMigration.parseLegacyDate(originalDate);
         } else {
-            dateToSave = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault()).format(new Date());
+            Date now = new Date();
+            dateToSave = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault()).format(now);
+            dateMillisToSave = now.getTime();
         }
 
         String finalBarcode = etBarcode.getText().toString().trim();
         InventoryItem item = new InventoryItem(name, qty, price, sale, category, currentMinStock, dateToSave, finalBarcode);
+        item.setDateAddedMillis(dateMillisToSave);
+        item.setFifoValue(qty * price);
+
+        // minStock may change here, so the stored status is recomputed
+        item.setStockStatus(StockStatus.stored(item));
 
         // CASE 1: UPDATE EXISTING
         if (existingItemId != null) {
-            db.collection("inventory").document(existingItemId)
-                    .set(item)
+            DocumentReference itemRef = db.collection("inventory").document(existingItemId);
+            db.runTransaction(transaction -> {
+                // The stats delta comes from the stored item, not from what this form was opened with
+                DocumentSnapshot stored = transaction.get(itemRef);
+                if (!stored.exists()) {
+                    throw new FirebaseFirestoreException("Item not found", FirebaseFirestoreException.Code.NOT_FOUND);
+                }
+                Long storedQtyLong = stored.getLong("quantity");
+                Double storedPriceDouble = stored.getDouble("price");
+                int storedQty = (storedQtyLong != null) ? storedQtyLong.intValue() : 0;
+                double storedPrice = (storedPriceDouble != null) ? storedPriceDouble : 0.0;
+
+                // Only the descriptive fields: quantity, FIFO batches and valuation belong to StockMovementEngine,
+                // and a new price only applies to stock received from now on
+                item.setQuantity(storedQty);
+                item.setStockStatus(StockStatus.stored(item));
+                transaction.set(itemRef, item, SetOptions.mergeFields(
+                        "name", "price", "sale", "category", "minStock",
+                        "dateAdded", "dateAddedMillis", "barcode", StockStatus.FIELD));
+                transaction.update(itemRef, StockStatus.FIELD_UPDATED_AT, FieldValue.serverTimestamp());
+                // Move the old contribution out and the new one in (handles category and price changes)
+                InventoryStats.applyDelta(transaction, db, stored.getString("category"), -storedQty, -storedQty * storedPrice, -1);
+                InventoryStats.applyDelta(transaction, db, category, storedQty, storedQty * price, 1);
+                return null;
+            })
                     .addOnSuccessListener(aVoid -> {
                         // SQLITE LOG
                         localDb.logAction("UPDATE", name);
-
-                        Toast.makeText(this, getString(R.string.msg_item_updated), Toast.LENGTH_SHORT).show();
-                        finish();
+                        if (qty == originalQty) {
+                            Toast.makeText(this, getString(R.string.msg_item_updated), Toast.LENGTH_SHORT).show();
+                            finish();
+                            return;
+                        }
+                        // A changed count is a stock movement: history, FIFO batches and valuation
+                        new StockMovementEngine(db).setQuantity(existingItemId, qty)
+                                .addOnSuccessListener(result -> {
+                                    localDb.logAction("MANUAL_ADJUST", result.itemName);
+                                    Toast.makeText(this, getString(R.string.msg_item_updated), Toast.LENGTH_SHORT).show();
+                                    finish();
+                                })
+                                .addOnFailureListener(e -> Toast.makeText(this, getString(R.string.msg_error_prefix, e.getMessage()), Toast.LENGTH_SHORT).show());
                     })
                     .addOnFailureListener(e -> Toast.makeText(this, getString(R.string.msg_update_failed), Toast.LENGTH_SHORT).show());
         }
         // CASE 2: ADD NEW
         else {
-            db.collection("inventory").add(item)
-                    .addOnSuccessListener(documentReference -> {
-                        String newItemId = documentReference.getId();
+            DocumentReference newItemRef = db.collection("inventory").document();
+            WriteBatch batch = db.batch();
+            batch.set(newItemRef, item);
+            InventoryStats.applyDelta(batch, db, category, qty, qty * price, 1);
+
+            // --- FIFO BONUS: Create the First Batch (and point the FIFO head at it) ---
+            batch.update(newItemRef, FifoBatches.FIELD_INDEXED, true,
+                    StockStatus.FIELD_UPDATED_AT, FieldValue.serverTimestamp());
+            if (qty > 0) {
+                DocumentReference batchRef = FifoBatches.batches(db, newItemRef.getId()).document();
+                batch.set(batchRef, new Batch(qty, price));
+                batch.update(newItemRef, FifoBatches.FIELD_HEAD, batchRef.getId());
+            }
 
-                        // --- FIFO BONUS: Create the First Batch ---
-                        Batch initialBatch = new Batch(qty);
-                        db.collection("inventory").document(newItemId)
-                                .collection("batches")
-                                .add(initialBatch);
-                        // ------------------------------------------
+            // ---> NEW: FIREBASE HISTORY LOG FOR ADDING PRODUCT (same batch as its rollup) <---
+            Transaction newProductLog = new Transaction(newItemRef.getId(), "New: " + name, finalBarcode,
+                    "IN", qty, qty, FirebaseAuth.getInstance().getUid());
+            batch.set(db.collection("transactions").document(), newProductLog);
+            TransactionRollups.apply(batch, db, newProductLog.getTimestamp(),
+                    new TransactionRollups.Delta().add(newItemRef.getId(), name, category, "IN", qty));
 
+            batch.commit()
+                    .addOnSuccessListener(aVoid -> {
                         // SQLITE LOG
                         localDb.logAction("CREATE", name);
 
-                        // ---> NEW: FIREBASE HISTORY LOG FOR ADDING PRODUCT <---
-                        Transaction newProductLog = new Transaction("New: " + name, "IN", qty);
-                        db.collection("transactions").add(newProductLog);
-
                         Toast.makeText(this, getString(R.string.msg_item_added), Toast.LENGTH_SHORT).show();
                         finish();
                     })
@@ -0,0 +1,89 @@
+package com.example.inventory;
+
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Bundle;
+import android.view.View;
+import android.widget.ImageView;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.inventory.adapter.InventoryAdapter;
+import com.example.inventory.model.InventoryItem;
+import com.example.inventory.repository.StockStatus;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Items that need restocking (OUT first, then LOW), live.
+ * Listens to the indexed stockStatus query only, so it never loads the full catalog.
+ */
+public class AlertsActivity extends AppCompatActivity {
+
+    private InventoryAdapter adapter;
+    private TextView tvAlertCount, tvEmpty;
+    private ListenerRegistration alertsListener;
+    private String userRole = "Staff";
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_alerts);
+
+        if (getIntent().hasExtra("USER_ROLE")) {
+            userRole = getIntent().getStringExtra("USER_ROLE");
+        } else {
+            SharedPreferences prefs = getSharedPreferences("UserPrefs", MODE_PRIVATE);
+            userRole = prefs.getString("USER_ROLE", "Staff");
+        }
+
+        ImageView btnBack = findViewById(R.id.btnBack);
+        btnBack.setOnClickListener(v -> finish());
+        tvAlertCount = findViewById(R.id.tvAlertCount);
+        tvEmpty = findViewById(R.id.tvAlertsEmpty);
+
+        RecyclerView recyclerView = findViewById(R.id.recyclerView);
+        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        adapter = new InventoryAdapter(new ArrayList<>(), item -> {
+            Intent intent = new Intent(this, ItemDetailActivity.class);
+            intent.putExtra("itemId", item.getId());
+            intent.putExtra("USER_ROLE", userRole);
+            startActivity(intent);
+        });
+        recyclerView.setAdapter(adapter);
+
+        alertsListener = StockStatus.alerts(FirebaseFirestore.getInstance())
+                .addSnapshotListener((snapshots, e) -> {
+                    if (e != null) {
+                        Toast.makeText(this, getString(R.string.msg_error_prefix, e.getMessage()), Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    if (snapshots == null) return;
+
+                    List<InventoryItem> items = new ArrayList<>();
+                    for (DocumentSnapshot doc : snapshots.getDocuments()) {
+                        InventoryItem item = doc.toObject(InventoryItem.class);
+                        if (item == null) continue;
+                        item.setId(doc.getId());
+                        items.add(item);
+                    }
+                    adapter.submitList(items);
+                    tvAlertCount.setText(getString(R.string.msg_alert_count, items.size()));
+                    tvEmpty.setVisibility(items.isEmpty() ? View.VISIBLE : View.GONE);
+                });
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (alertsListener != null) alertsListener.remove();
+    }
+}
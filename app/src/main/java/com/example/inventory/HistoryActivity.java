@@ -1,69 +1,82 @@
 package com.example.inventory;
 
 import android.app.DatePickerDialog;
-import android.content.ContentValues;
 import android.content.Intent;
 import android.content.SharedPreferences;
-import android.net.Uri;
-import android.os.Build;
+import android.graphics.Color;
+import android.graphics.Paint;
 import android.os.Bundle;
-import android.os.Environment;
-import android.provider.MediaStore;
 import android.view.View;
 import android.widget.ImageView;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import android.content.ContentValues;
-import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.Paint;
-import android.graphics.pdf.PdfDocument;
-import android.net.Uri;
-import android.os.Build;
-import android.os.Environment;
-import android.provider.MediaStore;
-
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.OutputStream;
-
-
+import androidx.activity.OnBackPressedCallback;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.example.inventory.adapter.RollupAdapter;
 import com.example.inventory.adapter.TransactionAdapter;
+import com.example.inventory.export.ExportJob;
+import com.example.inventory.export.ExportProgressDialog;
+import com.example.inventory.export.PdfStreamWriter;
+import com.example.inventory.model.RollupBucket;
 import com.example.inventory.model.Transaction;
+import com.example.inventory.repository.TransactionPager;
+import com.example.inventory.repository.TransactionRollups;
+import com.google.android.gms.tasks.Tasks;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
+import com.google.firebase.firestore.AggregateSource;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
 
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
 import java.io.OutputStream;
 import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.Deque;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutionException;
 
 public class HistoryActivity extends AppCompatActivity {
 
+    // Start fetching the next page when this many rows are left below the viewport
+    private static final int PREFETCH_DISTANCE = 20;
+    // Rows fetched per query while exporting
+    private static final int EXPORT_PAGE_SIZE = 500;
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    // Wider ranges are shown per week instead of per day
+    private static final long MAX_DAILY_SPAN_MILLIS = 62 * DAY_MILLIS;
+
     private RecyclerView recyclerView;
     private TransactionAdapter adapter;
     private List<Transaction> transactionList;
     private FirebaseFirestore db;
+    private TransactionPager pager;
     private TextView tvDateFrom, tvDateTo, tvResultCount;
     private View btnClear;
     private Date dateFrom = null, dateTo = null;
     private final SimpleDateFormat df = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
     private String userRole = "Staff";
 
+    // Ranges wider than a day are listed from the daily/weekly rollups; a single day shows raw records
+    private final List<RollupBucket> rollupList = new ArrayList<>();
+    private RollupAdapter rollupAdapter;
+    private boolean showingRollups = false;
+    private boolean rollupWeekly = false;
+    private int rollupRequest = 0;
+    // First day fully covered by rollups (null = not known yet; rollups start when this version shipped)
+    private Date rollupCoverageStart = null;
+    private boolean rollupCoverageKnown = false;
+    // Ranges we drilled down from, restored by Back
+    private final Deque<Date[]> drillStack = new ArrayDeque<>();
+    private OnBackPressedCallback drillBackCallback;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -78,6 +91,25 @@ public class HistoryActivity extends AppCompatActivity {
 
         db = FirebaseFirestore.getInstance();
         transactionList = new ArrayList<>();
+        pager = new TransactionPager(historyQuery(), new TransactionPager.Callback() {
+            @Override
+            public void onPageLoaded(List<Transaction> page, boolean firstPage) {
+                if (firstPage) {
+                    transactionList.clear();
+                    transactionList.addAll(page);
+                    adapter.notifyDataSetChanged();
+                } else {
+                    int start = transactionList.size();
+                    transactionList.addAll(page);
+                    adapter.notifyItemRangeInserted(start, page.size());
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Toast.makeText(HistoryActivity.this, getString(R.string.msg_error_prefix, e.getMessage()), Toast.LENGTH_SHORT).show();
+            }
+        });
 
         initViews();
         setupRecyclerView();
@@ -94,8 +126,17 @@ public class HistoryActivity extends AppCompatActivity {
         ImageView btnBack = findViewById(R.id.btnBack);
 
         if (btnBack != null) {
-            btnBack.setOnClickListener(v -> finish());
+            btnBack.setOnClickListener(v -> getOnBackPressedDispatcher().onBackPressed());
         }
+        drillBackCallback = new OnBackPressedCallback(false) {
+            @Override
+            public void handleOnBackPressed() {
+                Date[] previous = drillStack.pop();
+                setRange(previous[0], previous[1]);
+                showRange();
+            }
+        };
+        getOnBackPressedDispatcher().addCallback(this, drillBackCallback);
 
         // EXTRA: Bind the new Export PDF Button
         View btnExportPdf = findViewById(R.id.btnExportPdf);
@@ -116,7 +157,20 @@ public class HistoryActivity extends AppCompatActivity {
         recyclerView = findViewById(R.id.recyclerView);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
         adapter = new TransactionAdapter(transactionList);
+        rollupAdapter = new RollupAdapter(rollupList, this::drillInto);
         recyclerView.setAdapter(adapter);
+
+        // Paging-style prefetch: ask for the next page before the user reaches the end
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView rv, int dx, int dy) {
+                if (dy <= 0 || showingRollups) return;
+                LinearLayoutManager lm = (LinearLayoutManager) rv.getLayoutManager();
+                if (lm != null && lm.findLastVisibleItemPosition() >= transactionList.size() - PREFETCH_DISTANCE) {
+                    pager.loadNextPage();
+                }
+            }
+        });
     }
 
     private void showDatePicker(boolean isFrom) {
@@ -140,19 +194,20 @@ public class HistoryActivity extends AppCompatActivity {
         dialog.show();
     }
 
+    // Newest first, limited to the selected range when a filter is active
+    private Query historyQuery() {
+        Query query = db.collection("transactions");
+        if (dateFrom != null && dateTo != null) {
+            query = query.whereGreaterThanOrEqualTo("timestamp", dateFrom)
+                    .whereLessThanOrEqualTo("timestamp", dateTo);
+        }
+        return query.orderBy("timestamp", Query.Direction.DESCENDING);
+    }
+
     private void loadHistory() {
         if (btnClear != null) btnClear.setVisibility(View.GONE);
-        db.collection("transactions")
-                .orderBy("timestamp", Query.Direction.DESCENDING)
-                .get()
-                .addOnSuccessListener(snapshots -> {
-                    transactionList.clear();
-                    for (DocumentSnapshot doc : snapshots) {
-                        transactionList.add(doc.toObject(Transaction.class));
-                    }
-                    tvResultCount.setText(getString(R.string.msg_showing_all_logs, transactionList.size()));
-                    adapter.notifyDataSetChanged();
-                });
+        showRawRecords();
+        showResultCount(R.string.msg_showing_all_logs);
     }
 
     private void filterHistory() {
@@ -161,22 +216,125 @@ public class HistoryActivity extends AppCompatActivity {
             return;
         }
         if (btnClear != null) btnClear.setVisibility(View.VISIBLE);
-        db.collection("transactions")
-                .whereGreaterThanOrEqualTo("timestamp", dateFrom)
-                .whereLessThanOrEqualTo("timestamp", dateTo)
-                .orderBy("timestamp", Query.Direction.DESCENDING)
-                .get()
+        drillStack.clear();
+        drillBackCallback.setEnabled(false);
+        showRange();
+    }
+
+    // Coarse ranges read the rollups (one small document per day or week); one day reads raw records
+    private void showRange() {
+        if (dateTo.getTime() - dateFrom.getTime() < DAY_MILLIS) {
+            showRawRange();
+            return;
+        }
+        if (!rollupCoverageKnown) {
+            TransactionRollups.firstDay(db).get().addOnCompleteListener(task -> {
+                rollupCoverageKnown = true;
+                if (task.isSuccessful() && !task.getResult().isEmpty()) {
+                    Date first = task.getResult().getDocuments().get(0).getDate("start");
+                    // The first day may predate the rollups (partial), so coverage starts the day after
+                    if (first != null) rollupCoverageStart = new Date(first.getTime() + DAY_MILLIS);
+                }
+                showRange();
+            });
+            return;
+        }
+        boolean weekly = dateTo.getTime() - dateFrom.getTime() > MAX_DAILY_SPAN_MILLIS;
+        if (weekly) {
+            // Week buckets can't be split, so the range snaps to whole weeks and the labels say so
+            Calendar end = Calendar.getInstance();
+            end.setTime(TransactionRollups.weekStart(dateTo));
+            end.add(Calendar.DAY_OF_MONTH, 7);
+            setRange(TransactionRollups.weekStart(dateFrom), new Date(end.getTimeInMillis() - 1000));
+        }
+        if (rollupCoverageStart == null || dateFrom.before(rollupCoverageStart)) {
+            // Older than the rollups: only the raw records have it
+            showRawRange();
+            return;
+        }
+        showRollups(weekly);
+    }
+
+    private void showRawRecords() {
+        rollupRequest++;
+        showingRollups = false;
+        recyclerView.setAdapter(adapter);
+        pager.reset(historyQuery());
+    }
+
+    private void showRawRange() {
+        showRawRecords();
+        showResultCount(R.string.msg_found_records);
+    }
+
+    private void showRollups(boolean weekly) {
+        final int request = ++rollupRequest;
+        showingRollups = true;
+        rollupWeekly = weekly;
+        rollupAdapter.setWeekly(weekly);
+        recyclerView.setAdapter(rollupAdapter);
+        rollupList.clear();
+        rollupAdapter.notifyDataSetChanged();
+
+        // showRange() already snapped a weekly range to bucket boundaries
+        TransactionRollups.range(db, weekly, dateFrom, dateTo).get()
                 .addOnSuccessListener(snapshots -> {
-                    transactionList.clear();
-                    for (DocumentSnapshot doc : snapshots) {
-                        transactionList.add(doc.toObject(Transaction.class));
+                    if (request != rollupRequest) return;
+                    long count = 0, in = 0, out = 0;
+                    for (DocumentSnapshot doc : snapshots.getDocuments()) {
+                        RollupBucket bucket = doc.toObject(RollupBucket.class);
+                        if (bucket == null) continue;
+                        rollupList.add(bucket);
+                        count += bucket.getCount();
+                        in += bucket.getInQty();
+                        out += bucket.getOutQty();
                     }
-                    tvResultCount.setText(getString(R.string.msg_found_records, transactionList.size()));
-                    adapter.notifyDataSetChanged();
+                    rollupAdapter.notifyDataSetChanged();
+                    tvResultCount.setText(getString(R.string.msg_rollup_summary, count, in, out));
+                })
+                .addOnFailureListener(e -> Toast.makeText(this, getString(R.string.msg_error_prefix, e.getMessage()), Toast.LENGTH_SHORT).show());
+    }
+
+    // Week -> its days, day -> its raw records
+    private void drillInto(RollupBucket bucket) {
+        if (bucket.getStart() == null) return;
+        drillStack.push(new Date[]{dateFrom, dateTo});
+        drillBackCallback.setEnabled(true);
+
+        Calendar end = Calendar.getInstance();
+        end.setTime(bucket.getStart());
+        end.add(Calendar.DAY_OF_MONTH, rollupWeekly ? 7 : 1);
+        setRange(bucket.getStart(), new Date(end.getTimeInMillis() - 1000));
+        showRange();
+    }
+
+    private void setRange(Date from, Date to) {
+        dateFrom = from;
+        dateTo = to;
+        tvDateFrom.setText(df.format(dateFrom));
+        tvDateTo.setText(df.format(dateTo));
+        drillBackCallback.setEnabled(!drillStack.isEmpty());
+    }
+
+    // Server-side count aggregation: the total without downloading the records
+    private void showResultCount(int messageRes) {
+        final Query countedQuery = historyQuery();
+        countedQuery.count().get(AggregateSource.SERVER)
+                .addOnSuccessListener(snapshot -> {
+                    // Ignore a count for a filter that has since changed
+                    if (countedQuery.equals(historyQuery())) {
+                        tvResultCount.setText(getString(messageRes, (int) snapshot.getCount()));
+                    }
+                })
+                // Offline or denied: no count rather than the previous filter's one
+                .addOnFailureListener(e -> {
+                    if (countedQuery.equals(historyQuery())) tvResultCount.setText("");
                 });
     }
 
     private void resetFilter() {
+        drillStack.clear();
+        drillBackCallback.setEnabled(false);
         dateFrom = null;
         dateTo = null;
         tvDateFrom.setText(getString(R.string.label_select_date));
@@ -215,44 +373,70 @@ public class HistoryActivity extends AppCompatActivity {
         }
     }
 
-    // EXTRA: Generate PDF from History Logs
-    // EXTRA: Generate Multi-Page PDF from History Logs (CRASH-PROOF VERSION)
+    // EXTRA: Generate Multi-Page PDF from History Logs
+    // The whole selected range is exported (raw records, also from the rollup view),
+    // streamed page by page on the export thread
     private void generateHistoryPDF() {
-        if (transactionList.isEmpty()) {
+        if (showingRollups ? rollupList.isEmpty() : transactionList.isEmpty()) {
             Toast.makeText(this, "No history logs to export", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        // Wrap EVERYTHING in a try-catch so the app NEVER crashes
+        final Query query = historyQuery();
+        final String title = (dateFrom != null && dateTo != null)
+                ? "TRANSACTION HISTORY (" + df.format(dateFrom) + " - " + df.format(dateTo) + ")"
+                : "TRANSACTION HISTORY";
+
+        String safeName = (dateFrom != null) ? "Filtered_Log" : "Full_Log";
+        String fileName = "Audit_" + safeName + "_" + System.currentTimeMillis() + ".pdf";
+        ExportProgressDialog.run(this, fileName, "application/pdf",
+                (out, progress) -> writeHistoryPDF(out, progress, query, title));
+    }
+
+    // Runs on the export thread: reads the query in pages and never holds more than one page of rows
+    private void writeHistoryPDF(OutputStream out, ExportJob.Progress progress, Query query, String title) throws Exception {
+        // The count needs the server; offline the export still runs from the cache, without a total
+        int total = 0;
         try {
-            PdfDocument document = new PdfDocument();
-            int pageNumber = 1;
-            PdfDocument.PageInfo pageInfo = new PdfDocument.PageInfo.Builder(595, 842, pageNumber).create();
-            PdfDocument.Page page = document.startPage(pageInfo);
-            Canvas canvas = page.getCanvas();
-            Paint paint = new Paint();
+            total = (int) Tasks.await(query.count().get(AggregateSource.SERVER)).getCount();
+        } catch (ExecutionException e) {
+            // Indeterminate progress
+        }
+
+        PdfStreamWriter pdf = new PdfStreamWriter(out);
+        Paint paint = new Paint();
+        int pageNumber = 1;
+        pdf.startPage();
 
-            // Draw header on the first page
-            int y = drawPdfHeader(canvas, paint, pageNumber);
+        // Draw header on the first page
+        int y = drawPdfHeader(pdf, paint, pageNumber, title);
 
-            int rowCount = 0;
-            java.text.SimpleDateFormat timeFormat = new java.text.SimpleDateFormat("MMM dd, yyyy HH:mm", java.util.Locale.getDefault());
+        int rowCount = 0;
+        SimpleDateFormat timeFormat = new SimpleDateFormat("MMM dd, yyyy HH:mm", Locale.getDefault());
+        DocumentSnapshot last = null;
+
+        while (true) {
+            Query page = query.limit(EXPORT_PAGE_SIZE);
+            if (last != null) page = page.startAfter(last);
+            List<DocumentSnapshot> docs = Tasks.await(page.get()).getDocuments();
+
+            for (DocumentSnapshot doc : docs) {
+                progress.checkCancelled();
+                Transaction t = doc.toObject(Transaction.class);
+                if (t == null) continue;
 
-            for (Transaction t : transactionList) {
                 // If we reach the bottom of the page, create a new one!
                 if (y > 780) {
-                    document.finishPage(page);
+                    pdf.finishPage();
                     pageNumber++;
-                    pageInfo = new PdfDocument.PageInfo.Builder(595, 842, pageNumber).create();
-                    page = document.startPage(pageInfo);
-                    canvas = page.getCanvas();
-                    y = drawPdfHeader(canvas, paint, pageNumber);
+                    pdf.startPage();
+                    y = drawPdfHeader(pdf, paint, pageNumber, title);
                 }
 
                 // Draw Alternating Row Background
                 if (rowCount % 2 != 0) {
                     paint.setColor(Color.rgb(250, 250, 250));
-                    canvas.drawRect(50, y - 25, 545, y + 15, paint);
+                    pdf.drawRect(50, y - 25, 545, y + 15, paint);
                 }
 
                 paint.setColor(Color.BLACK);
@@ -260,94 +444,56 @@ public class HistoryActivity extends AppCompatActivity {
 
                 // NULL-SAFETY: Check Date
                 String dateStr = (t.getTimestamp() != null) ? timeFormat.format(t.getTimestamp()) : "N/A";
-                canvas.drawText(dateStr, 60, y, paint);
+                pdf.drawText(dateStr, 60, y, paint);
 
-                // NULL-SAFETY: Check Item Name (THIS IS WHAT LIKELY CAUSED THE CRASH!)
+                // NULL-SAFETY: Check Item Name
                 String itemName = (t.getItemName() != null && !t.getItemName().isEmpty()) ? t.getItemName() : "Unknown Item";
-                canvas.drawText(itemName, 230, y, paint);
+                pdf.drawText(itemName, 230, y, paint);
 
                 // Conditional Coloring for IN / OUT
                 if ("IN".equalsIgnoreCase(t.getType())) {
                     paint.setColor(Color.rgb(56, 142, 60)); // Green
                     paint.setFakeBoldText(true);
-                    canvas.drawText("STOCK IN", 400, y, paint);
-                    canvas.drawText("+" + t.getQuantityChanged(), 480, y, paint);
+                    pdf.drawText("STOCK IN", 400, y, paint);
+                    pdf.drawText("+" + t.getQuantityChanged(), 480, y, paint);
                 } else {
                     paint.setColor(Color.rgb(211, 47, 47)); // Red
                     paint.setFakeBoldText(true);
-                    canvas.drawText("STOCK OUT", 400, y, paint);
-                    canvas.drawText("-" + t.getQuantityChanged(), 480, y, paint);
+                    pdf.drawText("STOCK OUT", 400, y, paint);
+                    pdf.drawText("-" + t.getQuantityChanged(), 480, y, paint);
                 }
                 paint.setFakeBoldText(false);
 
                 y += 40;
                 rowCount++;
+                progress.update(rowCount, (total > 0) ? Math.max(total, rowCount) : 0);
             }
 
-            // Finish the final page
-            document.finishPage(page);
-
-            // Safely Save the File
-            String safeName = (dateFrom != null) ? "Filtered_Log" : "Full_Log";
-            String fileName = "Audit_" + safeName + "_" + System.currentTimeMillis() + ".pdf";
-
-            java.io.OutputStream outputStream = null;
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-                ContentValues values = new ContentValues();
-                values.put(MediaStore.MediaColumns.DISPLAY_NAME, fileName);
-                values.put(MediaStore.MediaColumns.MIME_TYPE, "application/pdf");
-                values.put(MediaStore.MediaColumns.RELATIVE_PATH, Environment.DIRECTORY_DOWNLOADS);
-                Uri uri = getContentResolver().insert(MediaStore.Downloads.EXTERNAL_CONTENT_URI, values);
-                if (uri != null) {
-                    outputStream = getContentResolver().openOutputStream(uri);
-                }
-            } else {
-                java.io.File dir = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS);
-                if (!dir.exists()) dir.mkdirs(); // Ensure directory exists to prevent crash
-                java.io.File file = new java.io.File(dir, fileName);
-                outputStream = new java.io.FileOutputStream(file);
-            }
-
-            if (outputStream != null) {
-                document.writeTo(outputStream);
-                outputStream.close();
-                Toast.makeText(this, "Audit Log Saved to Downloads!", Toast.LENGTH_LONG).show();
-            } else {
-                Toast.makeText(this, "Failed to create file.", Toast.LENGTH_SHORT).show();
-            }
-
-            document.close();
-
-        } catch (Exception e) {
-            // CATCH ALL ERRORS: App will no longer crash, it will show a Toast message instead.
-            e.printStackTrace();
-            Toast.makeText(this, "Error generating PDF: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            if (docs.size() < EXPORT_PAGE_SIZE) break;
+            last = docs.get(docs.size() - 1);
         }
+
+        pdf.finish();
     }
 
     // HELPER: Draws the top header and column titles on EVERY new page
-    private int drawPdfHeader(Canvas canvas, Paint paint, int pageNumber) {
+    private int drawPdfHeader(PdfStreamWriter pdf, Paint paint, int pageNumber, String title) {
         int y; // The Y coordinate where our table columns will start
 
         if (pageNumber == 1) {
             // DRAW BIG PURPLE HEADER (ONLY ON PAGE 1)
             paint.setColor(Color.rgb(98, 0, 238));
-            canvas.drawRect(0, 0, 595, 130, paint);
+            pdf.drawRect(0, 0, 595, 130, paint);
 
             paint.setColor(Color.WHITE);
             paint.setTextSize(24);
             paint.setFakeBoldText(true);
-
-            String title = "TRANSACTION HISTORY";
-            if (dateFrom != null && dateTo != null) {
-                title += " (" + df.format(dateFrom) + " - " + df.format(dateTo) + ")";
-            }
-            canvas.drawText(title, 50, 60, paint);
+            pdf.drawText(title, 50, 60, paint);
 
             paint.setTextSize(14);
             paint.setFakeBoldText(false);
             paint.setColor(Color.rgb(224, 224, 224));
-            canvas.drawText("Inventify System Audit Log - Page 1", 50, 95, paint);
+            pdf.drawText("Inventify System Audit Log - Page 1", 50, 95, paint);
 
             y = 170; // Set column headers lower to make room for the purple box
 
@@ -356,22 +502,22 @@ public class HistoryActivity extends AppCompatActivity {
             paint.setColor(Color.GRAY);
             paint.setTextSize(12);
             paint.setFakeBoldText(false);
-            canvas.drawText("Transaction History - Page " + pageNumber, 50, 40, paint);
+            pdf.drawText("Transaction History - Page " + pageNumber, 50, 40, paint);
 
             y = 80; // Set column headers much higher to fit more data!
         }
 
         // DRAW TABLE COLUMN HEADERS (ON EVERY PAGE SO THE TABLE MAKES SENSE)
         paint.setColor(Color.rgb(240, 240, 240)); // Light Gray Background for row
-        canvas.drawRect(50, y - 25, 545, y + 15, paint);
+        pdf.drawRect(50, y - 25, 545, y + 15, paint);
 
         paint.setColor(Color.BLACK);
         paint.setTextSize(12);
         paint.setFakeBoldText(true);
-        canvas.drawText("Date & Time", 60, y, paint);
-        canvas.drawText("Item Name", 230, y, paint);
-        canvas.drawText("Action", 400, y, paint);
-        canvas.drawText("Qty", 480, y, paint);
+        pdf.drawText("Date & Time", 60, y, paint);
+        pdf.drawText("Item Name", 230, y, paint);
+        pdf.drawText("Action", 400, y, paint);
+        pdf.drawText("Qty", 480, y, paint);
 
         return y + 40; // Return the starting Y coordinate for the data rows
     }
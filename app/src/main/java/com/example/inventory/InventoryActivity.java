@@ -16,29 +16,25 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.inventory.adapter.InventoryAdapter;
 import com.example.inventory.model.InventoryItem;
+import com.example.inventory.repository.FilterPipeline;
+import com.example.inventory.repository.InventoryRepository;
+import com.example.inventory.repository.StockForecast;
+import com.example.inventory.repository.StockStatus;
 import com.google.android.material.bottomappbar.BottomAppBar;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.tabs.TabLayout;
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.ListenerRegistration;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
 
-public class InventoryActivity extends AppCompatActivity {
+public class InventoryActivity extends AppCompatActivity implements InventoryRepository.Observer {
 
     private RecyclerView recyclerView;
     private InventoryAdapter adapter;
-    private List<InventoryItem> fullItemList;
-    private List<InventoryItem> displayList;
-    private FirebaseFirestore db;
-    private ListenerRegistration firestoreListener;
+    private InventoryRepository repository;
+    private final FilterPipeline filterPipeline = new FilterPipeline();
     private String userRole = "Staff";
     private TextView tvAppTitle;
     private TabLayout tabLayout;
@@ -56,9 +52,7 @@ public class InventoryActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_inventory);
 
-        db = FirebaseFirestore.getInstance();
-        fullItemList = new ArrayList<>();
-        displayList = new ArrayList<>();
+        repository = InventoryRepository.get(this);
 
         if (getIntent().hasExtra("USER_ROLE")) {
             userRole = getIntent().getStringExtra("USER_ROLE");
@@ -111,7 +105,7 @@ public class InventoryActivity extends AppCompatActivity {
             @Override
             public void onTabSelected(TabLayout.Tab tab) {
                 currentTab = tab.getPosition();
-                applyFilter();
+                applyFilter(0);
             }
             @Override
             public void onTabUnselected(TabLayout.Tab tab) {}
@@ -127,7 +121,7 @@ public class InventoryActivity extends AppCompatActivity {
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
                 searchQuery = s.toString().toLowerCase().trim();
-                applyFilter();
+                applyFilter(FilterPipeline.SEARCH_DEBOUNCE_MS);
             }
             @Override
             public void afterTextChanged(Editable s) {}
@@ -158,7 +152,7 @@ public class InventoryActivity extends AppCompatActivity {
         recyclerView = findViewById(R.id.recyclerView);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
 
-        adapter = new InventoryAdapter(displayList, item -> {
+        adapter = new InventoryAdapter(new ArrayList<>(), item -> {
             Intent intent = new Intent(this, ItemDetailActivity.class);
             intent.putExtra("itemId", item.getId());
             intent.putExtra("USER_ROLE", userRole);
@@ -206,66 +200,55 @@ public class InventoryActivity extends AppCompatActivity {
 
 
     private void loadInventoryRealTime() {
-        firestoreListener = db.collection("inventory").addSnapshotListener((snapshots, e) -> {
-            if (e != null || snapshots == null) return;
-            fullItemList.clear();
-            for (DocumentSnapshot doc : snapshots) {
-                InventoryItem item = doc.toObject(InventoryItem.class);
-                if (item != null) {
-                    item.setId(doc.getId());
-                    fullItemList.add(item);
-                }
-            }
-
-            SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
-            Collections.sort(fullItemList, (item1, item2) -> {
-                try {
-                    String d1Str = (item1.getDateAdded() != null) ? item1.getDateAdded() : "Jan 01, 1970";
-                    String d2Str = (item2.getDateAdded() != null) ? item2.getDateAdded() : "Jan 01, 1970";
-                    Date d1 = sdf.parse(d1Str);
-                    Date d2 = sdf.parse(d2Str);
-                    return d2.compareTo(d1);
-                } catch (Exception ex) { return 0; }
-            });
-            applyFilter();
-        });
+        // Shared listener owned by InventoryApp; fires immediately if the catalog is already loaded
+        repository.addObserver(this);
     }
 
-    private void applyFilter() {
-        displayList.clear();
-        for (InventoryItem item : fullItemList) {
-            boolean matchesTab = false;
-
-            // --- THE NEW TAB LOGIC ---
-            if (currentTab == 0) {
-                matchesTab = true; // Tab 1: All Items (Shows everything, including 0 stock)
-            } else if (currentTab == 1) {
-                // Tab 2: IN STOCK (Strictly greater than 5)
-                matchesTab = (item.getQuantity() > 5);
-            } else if (currentTab == 2) {
-                // Tab 3: LOW STOCK (Greater than 0, AND 5 or less)
-                matchesTab = (item.getQuantity() > 0 && item.getQuantity() <= 5);
-            }
+    @Override
+    public void onInventoryChanged(InventoryRepository repository) {
+        applyFilter(0);
+    }
 
-            boolean matchesSearch = true;
-            if (!searchQuery.isEmpty()) {
-                String name = item.getName().toLowerCase();
-                String barcode = (item.getBarcode() != null) ? item.getBarcode().toLowerCase() : "";
-                if (!name.contains(searchQuery) && !barcode.contains(searchQuery)) {
-                    matchesSearch = false;
-                }
+    /**
+     * Filters on the background pipeline. Only the latest query's result reaches the adapter.
+     * Query inputs are captured here on the main thread.
+     */
+    private void applyFilter(long debounceMs) {
+        final String query = searchQuery;
+        final int tab = currentTab;
+
+        filterPipeline.submit(() -> {
+            // Sorted on the pre-parsed epoch key; the search index narrows the candidates
+            List<InventoryItem> candidates = query.isEmpty() ? repository.getItemsNewestFirst() : repository.search(query);
+            long now = System.currentTimeMillis();
+            List<InventoryItem> displayList = new ArrayList<>();
+            for (InventoryItem item : candidates) {
+                if (matchesTab(item, tab)) displayList.add(item);
             }
+            // Replenishment order: whatever runs out first
+            if (tab == 2) Collections.sort(displayList, StockForecast.mostUrgentFirst(now));
+            return displayList;
+        }, debounceMs, displayList -> adapter.submitList(displayList));
+    }
 
-            if (matchesTab && matchesSearch) {
-                displayList.add(item);
-            }
+    private static boolean matchesTab(InventoryItem item, int tab) {
+        // --- THE NEW TAB LOGIC ---
+        if (tab == 0) {
+            return true; // Tab 1: All Items (Shows everything, including 0 stock)
+        } else if (tab == 1) {
+            // Tab 2: IN STOCK (above the item's reorder point)
+            return StockStatus.OK.equals(StockStatus.current(item));
+        } else if (tab == 2) {
+            // Tab 3: LOW STOCK (Greater than 0, AND at or below the reorder point)
+            return StockStatus.LOW.equals(StockStatus.current(item));
         }
-        adapter.notifyDataSetChanged();
+        return false;
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (firestoreListener != null) firestoreListener.remove();
+        repository.removeObserver(this);
+        filterPipeline.shutdown();
     }
 }
@@ -1,10 +1,16 @@
 package com.example.inventory;
 
 import android.app.Application;
+
+import com.example.inventory.repository.InventoryRepository;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.FirebaseFirestoreSettings;
 
 public class InventoryApp extends Application {
+
+    // One catalog + one listener for the whole process
+    private InventoryRepository inventoryRepository;
+
     @Override
     public void onCreate() {
         super.onCreate();
@@ -15,5 +21,11 @@ public class InventoryApp extends Application {
                 .setPersistenceEnabled(true)
                 .build();
         db.setFirestoreSettings(settings);
+
+        inventoryRepository = new InventoryRepository(db);
+    }
+
+    public InventoryRepository getInventoryRepository() {
+        return inventoryRepository;
     }
-}
\ No newline at end of file
+}
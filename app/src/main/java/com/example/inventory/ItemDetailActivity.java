@@ -19,22 +19,36 @@ import android.widget.Toast;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.inventory.adapter.TransactionAdapter;
 
 import com.example.inventory.model.Transaction;
-import com.example.inventory.model.Batch;
 import com.example.inventory.db.LocalDatabaseHelper;
+import com.example.inventory.repository.InventoryStats;
+import com.example.inventory.repository.StockMovementEngine;
+import com.example.inventory.repository.TransactionPager;
+import com.example.inventory.repository.TransactionRollups;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
 
 // NEW ZXING IMPORTS
 import com.google.zxing.BarcodeFormat;
-import com.journeyapps.barcodescanner.BarcodeEncoder;
+import com.example.inventory.barcode.BarcodeBitmapCache;
+
+import java.util.ArrayList;
+import java.util.List;
 
 public class ItemDetailActivity extends AppCompatActivity {
 
+    // Movements shown per "Show more" tap
+    private static final int HISTORY_PAGE_SIZE = 10;
+
     // UI Components
     private TextView tvName, tvPrice;
     private TextView tvDetailCategory, tvDetailDate, tvDetailMinStock, tvDetailBarcode;
@@ -43,11 +57,18 @@ public class ItemDetailActivity extends AppCompatActivity {
     private View btnStockIn, btnStockOut, btnEdit, btnDelete;
     private ImageView btnBack;
     private LinearLayout layoutAdminActions;
+    private RecyclerView rvItemHistory;
+    private TextView tvItemHistoryEmpty;
+    private Button btnItemHistoryMore;
 
     // Database & Listeners
     private FirebaseFirestore db;
     private LocalDatabaseHelper localDb;
     private ListenerRegistration itemListener;
+    private StockMovementEngine stockEngine;
+    private TransactionPager historyPager;
+    private final List<Transaction> itemHistory = new ArrayList<>();
+    private TransactionAdapter historyAdapter;
 
     // Item Data
     private String itemId, itemName;
@@ -56,9 +77,11 @@ public class ItemDetailActivity extends AppCompatActivity {
 
     // Item Details for Edit
     private String currentCategory = "";
+    private double currentPrice = 0.0;
     private double currentSale = 0.0;
     private int currentMinStock = 5;
     private String currentDateAdded = "";
+    private long currentDateAddedMillis = 0;
     private String currentBarcode = "";
 
     @Override
@@ -67,7 +90,8 @@ public class ItemDetailActivity extends AppCompatActivity {
         setContentView(R.layout.activity_item_detail);
 
         db = FirebaseFirestore.getInstance();
-        localDb = new LocalDatabaseHelper(this);
+        localDb = LocalDatabaseHelper.get(this);
+        stockEngine = new StockMovementEngine(db);
 
         if (getIntent() != null) {
             itemId = getIntent().getStringExtra("itemId");
@@ -84,6 +108,7 @@ public class ItemDetailActivity extends AppCompatActivity {
         setupClickListeners();
         setupKeyboardAutoSave();
         startItemUpdates();
+        setupItemHistory();
     }
 
     private void initViews() {
@@ -103,6 +128,9 @@ public class ItemDetailActivity extends AppCompatActivity {
         btnDelete = findViewById(R.id.btnDelete);
         btnBack = findViewById(R.id.btnBack);
         layoutAdminActions = findViewById(R.id.layoutAdminActions);
+        rvItemHistory = findViewById(R.id.rvItemHistory);
+        tvItemHistoryEmpty = findViewById(R.id.tvItemHistoryEmpty);
+        btnItemHistoryMore = findViewById(R.id.btnItemHistoryMore);
     }
 
     private void checkPermissions() {
@@ -146,6 +174,7 @@ public class ItemDetailActivity extends AppCompatActivity {
             intent.putExtra("sale", currentSale);
             intent.putExtra("minStock", currentMinStock);
             intent.putExtra("dateAdded", currentDateAdded);
+            intent.putExtra("dateAddedMillis", currentDateAddedMillis);
             intent.putExtra("barcode", currentBarcode);
 
             String priceStr = tvPrice.getText().toString().replace("$", "");
@@ -181,7 +210,15 @@ public class ItemDetailActivity extends AppCompatActivity {
 
         itemListener = db.collection("inventory").document(itemId)
                 .addSnapshotListener((snapshot, e) -> {
-                    if (e != null || snapshot == null || !snapshot.exists()) return;
+                    if (e != null || snapshot == null) return;
+                    if (!snapshot.exists()) {
+                        // e.g. opened from a stale scan index entry; a cache miss is not conclusive
+                        if (!snapshot.getMetadata().isFromCache()) {
+                            Toast.makeText(this, getString(R.string.msg_item_not_found), Toast.LENGTH_SHORT).show();
+                            finish();
+                        }
+                        return;
+                    }
 
                     itemName = snapshot.getString("name");
                     Long qtyLong = snapshot.getLong("quantity");
@@ -189,6 +226,7 @@ public class ItemDetailActivity extends AppCompatActivity {
 
                     Double priceDouble = snapshot.getDouble("price");
                     double price = (priceDouble != null) ? priceDouble : 0.0;
+                    currentPrice = price;
 
                     currentCategory = snapshot.getString("category");
                     if (currentCategory == null) currentCategory = "";
@@ -200,6 +238,8 @@ public class ItemDetailActivity extends AppCompatActivity {
                     currentMinStock = (minStockLong != null) ? minStockLong.intValue() : 5;
 
                     currentDateAdded = snapshot.getString("dateAdded");
+                    Long dateMillisLong = snapshot.getLong("dateAddedMillis");
+                    currentDateAddedMillis = (dateMillisLong != null) ? dateMillisLong : 0;
                     currentBarcode = snapshot.getString("barcode");
 
                     // UPDATE THE UI
@@ -228,6 +268,39 @@ public class ItemDetailActivity extends AppCompatActivity {
                 });
     }
 
+    // Indexed range query on (itemId, timestamp) instead of scanning the whole history by name
+    private void setupItemHistory() {
+        if (itemId == null) return;
+
+        historyAdapter = new TransactionAdapter(itemHistory);
+        rvItemHistory.setLayoutManager(new LinearLayoutManager(this));
+        rvItemHistory.setAdapter(historyAdapter);
+
+        historyPager = new TransactionPager(itemHistoryQuery(), HISTORY_PAGE_SIZE, new TransactionPager.Callback() {
+            @Override
+            public void onPageLoaded(List<Transaction> page, boolean firstPage) {
+                if (firstPage) {
+                    itemHistory.clear();
+                    itemHistory.addAll(page);
+                    historyAdapter.notifyDataSetChanged();
+                } else {
+                    int start = itemHistory.size();
+                    itemHistory.addAll(page);
+                    historyAdapter.notifyItemRangeInserted(start, page.size());
+                }
+                tvItemHistoryEmpty.setVisibility(itemHistory.isEmpty() ? View.VISIBLE : View.GONE);
+                btnItemHistoryMore.setVisibility(historyPager.hasMore() ? View.VISIBLE : View.GONE);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Toast.makeText(ItemDetailActivity.this, getString(R.string.msg_error_prefix, e.getMessage()), Toast.LENGTH_SHORT).show();
+            }
+        });
+        btnItemHistoryMore.setOnClickListener(v -> historyPager.loadNextPage());
+        historyPager.loadNextPage();
+    }
+
     // NEW METHOD: Converts the string into a Barcode image
     private void generateAndDisplayBarcode(String barcodeText) {
         if (TextUtils.isEmpty(barcodeText)) {
@@ -236,9 +309,8 @@ public class ItemDetailActivity extends AppCompatActivity {
         }
 
         try {
-            BarcodeEncoder barcodeEncoder = new BarcodeEncoder();
-            // Encode the text into a CODE_128 Barcode
-            Bitmap bitmap = barcodeEncoder.encodeBitmap(barcodeText, BarcodeFormat.CODE_128, 600, 200);
+            // Cached: snapshot ticks for the same item don't re-encode
+            Bitmap bitmap = BarcodeBitmapCache.get().get(barcodeText, BarcodeFormat.CODE_128, 600, 200);
 
             ivDetailBarcodeImage.setImageBitmap(bitmap);
             ivDetailBarcodeImage.setVisibility(View.VISIBLE);
@@ -252,23 +324,34 @@ public class ItemDetailActivity extends AppCompatActivity {
      * MAIN STOCK UPDATE METHOD
      */
     private void updateStockByIncrement(int change) {
-        db.collection("inventory").document(itemId)
-                .update("quantity", FieldValue.increment(change))
-                .addOnSuccessListener(aVoid -> {
-                    logTransactionToHistory(change);
-
+        // Quantity, history record, FIFO batches and stats in ONE transaction
+        stockEngine.changeBy(itemId, change)
+                .addOnSuccessListener(result -> {
                     // SQLITE LOG
                     String type = (change > 0) ? "STOCK_IN" : "STOCK_OUT";
-                    localDb.logAction(type, itemName);
-
-                    // FIFO BATCH LOGIC
-                    if (change > 0) {
-                        addBatch(change);
-                    } else {
-                        processFifoStockOut(Math.abs(change));
-                    }
+                    localDb.logAction(type, result.itemName);
+                    refreshItemHistory();
                 })
-                .addOnFailureListener(e -> Toast.makeText(this, getString(R.string.msg_error_prefix, e.getMessage()), Toast.LENGTH_SHORT).show());
+                .addOnFailureListener(this::showStockError);
+    }
+
+    private void refreshItemHistory() {
+        if (historyPager == null) return;
+        historyPager.reset(itemHistoryQuery());
+    }
+
+    private Query itemHistoryQuery() {
+        return db.collection("transactions")
+                .whereEqualTo("itemId", itemId)
+                .orderBy("timestamp", Query.Direction.DESCENDING);
+    }
+
+    private void showStockError(Exception e) {
+        if (StockMovementEngine.asInsufficientStock(e) != null) {
+            Toast.makeText(this, getString(R.string.msg_stock_zero), Toast.LENGTH_SHORT).show();
+        } else {
+            Toast.makeText(this, getString(R.string.msg_error_prefix, e.getMessage()), Toast.LENGTH_SHORT).show();
+        }
     }
 
     private void saveTypedCustomQuantity() {
@@ -282,25 +365,23 @@ public class ItemDetailActivity extends AppCompatActivity {
             int newQty = Integer.parseInt(input);
             if (newQty == currentQty) return;
 
-            int difference = newQty - currentQty;
-            currentQty = newQty;
-
-            db.collection("inventory").document(itemId)
-                    .update("quantity", newQty)
-                    .addOnSuccessListener(aVoid -> {
-                        logTransactionToHistory(difference);
-                        localDb.logAction("MANUAL_ADJUST", itemName);
-
+            // The difference is computed against the server value inside the transaction;
+            // currentQty only follows once the item really has the new count
+            stockEngine.setQuantity(itemId, newQty)
+                    .addOnSuccessListener(result -> {
+                        currentQty = result.newQty;
+                        localDb.logAction("MANUAL_ADJUST", result.itemName);
+                        refreshItemHistory();
                         Toast.makeText(this, getString(R.string.msg_stock_saved), Toast.LENGTH_SHORT).show();
-
-                        // FIFO Logic for Manual Edit
-                        if (difference > 0) {
-                            addBatch(difference);
+                    })
+                    .addOnFailureListener(e -> {
+                        etDetailQty.setText(String.valueOf(currentQty));
+                        if (StockMovementEngine.asInsufficientStock(e) != null) {
+                            Toast.makeText(this, getString(R.string.msg_stock_zero), Toast.LENGTH_SHORT).show();
                         } else {
-                            processFifoStockOut(Math.abs(difference));
+                            Toast.makeText(this, getString(R.string.msg_failed_save), Toast.LENGTH_SHORT).show();
                         }
-                    })
-                    .addOnFailureListener(e -> Toast.makeText(this, getString(R.string.msg_failed_save), Toast.LENGTH_SHORT).show());
+                    });
 
         } catch (NumberFormatException e) {
             Toast.makeText(this, getString(R.string.msg_invalid_number), Toast.LENGTH_SHORT).show();
@@ -308,66 +389,44 @@ public class ItemDetailActivity extends AppCompatActivity {
         }
     }
 
-    // --- FIFO HELPER: Add new batch ---
-    private void addBatch(int qty) {
-        Batch newBatch = new Batch(qty);
-        db.collection("inventory").document(itemId).collection("batches").add(newBatch);
-    }
-
-    // --- FIFO HELPER ---
-    private void processFifoStockOut(int qtyNeededInput) {
-        if (qtyNeededInput <= 0) return;
-
-        final int[] neededWrapper = {qtyNeededInput};
-
-        db.collection("inventory").document(itemId).collection("batches")
-                .orderBy("dateReceived", Query.Direction.ASCENDING)
-                .get()
-                .addOnSuccessListener(snapshots -> {
-                    for (DocumentSnapshot doc : snapshots) {
-                        Long rQty = doc.getLong("remainingQty");
-                        int remaining = (rQty != null) ? rQty.intValue() : 0;
-
-                        if (remaining > 0) {
-                            if (remaining >= neededWrapper[0]) {
-                                doc.getReference().update("remainingQty", remaining - neededWrapper[0]);
-                                neededWrapper[0] = 0;
-                                return;
-                            } else {
-                                doc.getReference().update("remainingQty", 0);
-                                neededWrapper[0] -= remaining;
-                            }
-                        }
-                        if (neededWrapper[0] <= 0) break;
-                    }
-                });
-    }
-
-    private void logTransactionToHistory(int change) {
-        if (change == 0) return;
-        String type = (change > 0) ? "IN" : "OUT";
-        Transaction transaction = new Transaction(itemName, type, Math.abs(change));
-        db.collection("transactions").add(transaction);
-    }
-
     private void showDeleteConfirmation() {
         new AlertDialog.Builder(this)
                 .setTitle(getString(R.string.dialog_delete_title))
                 .setMessage(getString(R.string.dialog_delete_msg, itemName))
                 .setPositiveButton(getString(R.string.dialog_btn_delete), (dialog, which) -> {
-                    db.collection("inventory").document(itemId).delete()
+                    DocumentReference itemRef = db.collection("inventory").document(itemId);
+                    // The stats delta comes from the item as it is at delete time, not as this screen last saw it
+                    db.runTransaction(transaction -> {
+                        DocumentSnapshot item = transaction.get(itemRef);
+                        if (!item.exists()) return null; // Deleted elsewhere; its contribution is gone already
+
+                        Long qtyLong = item.getLong("quantity");
+                        Double priceDouble = item.getDouble("price");
+                        int qty = (qtyLong != null) ? qtyLong.intValue() : 0;
+                        double price = (priceDouble != null) ? priceDouble : 0.0;
+                        String name = item.getString("name");
+                        String category = item.getString("category");
+
+                        transaction.delete(itemRef);
+                        InventoryStats.applyDelta(transaction, db, category, -qty, -qty * price, -1);
+
+                        // ---> NEW: FIREBASE HISTORY LOG FOR DELETING PRODUCT <---
+                        // We use "OUT" so it shows up in Red, and we log the quantity that was deleted
+                        Transaction deleteLog = new Transaction(itemId, "Deleted: " + name, item.getString("barcode"),
+                                "OUT", qty, 0, FirebaseAuth.getInstance().getUid());
+                        transaction.set(db.collection("transactions").document(), deleteLog);
+                        TransactionRollups.apply(transaction, db, deleteLog.getTimestamp(),
+                                new TransactionRollups.Delta().add(itemId, name, category, "OUT", qty));
+                        return null;
+                    })
                             .addOnSuccessListener(aVoid -> {
                                 // SQLITE LOG
                                 localDb.logAction("DELETE", itemName);
 
-                                // ---> NEW: FIREBASE HISTORY LOG FOR DELETING PRODUCT <---
-                                // We use "OUT" so it shows up in Red, and we log the quantity that was deleted
-                                Transaction deleteLog = new Transaction("Deleted: " + itemName, "OUT", currentQty);
-                                db.collection("transactions").add(deleteLog);
-
                                 Toast.makeText(this, getString(R.string.msg_product_deleted), Toast.LENGTH_SHORT).show();
                                 finish();
-                            });
+                            })
+                            .addOnFailureListener(e -> Toast.makeText(this, getString(R.string.msg_error_prefix, e.getMessage()), Toast.LENGTH_SHORT).show());
                 })
                 .setNegativeButton(getString(R.string.dialog_btn_cancel), null)
                 .show();
@@ -378,6 +437,5 @@ public class ItemDetailActivity extends AppCompatActivity {
     protected void onDestroy() {
         super.onDestroy();
         if (itemListener != null) itemListener.remove();
-        if (localDb != null) localDb.close();
     }
 }
@@ -1,8 +1,11 @@
 package com.example.inventory;
 
+import android.Manifest;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
 import android.graphics.Rect;
+import android.os.Build;
 import android.os.Bundle;
 import android.text.Editable;
 import android.text.TextWatcher;
@@ -13,40 +16,43 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.inventory.adapter.InventoryAdapter;
-import com.example.inventory.model.InventoryItem;
+import com.example.inventory.alerts.LowStockWorker;
+import com.example.inventory.db.LocalDatabaseHelper;
+import com.example.inventory.repository.BarcodeLookup;
+import com.example.inventory.repository.FilterPipeline;
+import com.example.inventory.repository.InventoryRepository;
+import com.example.inventory.repository.InventoryStats;
 import com.google.android.material.bottomappbar.BottomAppBar;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.textfield.TextInputEditText;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.ListenerRegistration;
 import com.journeyapps.barcodescanner.ScanContract;
 import com.journeyapps.barcodescanner.ScanOptions;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Date;
-import java.util.List;
-import java.util.Locale;
 
-public class MainActivity extends AppCompatActivity {
+public class MainActivity extends AppCompatActivity implements InventoryRepository.Observer {
 
     private RecyclerView recyclerView;
     private InventoryAdapter adapter;
     private TextView tvTotalCount, tvTotalValue, tvAppTitle;
     private TextInputEditText etSearch;
-    private List<InventoryItem> itemList;
-    private List<InventoryItem> fullList;
+    private InventoryRepository repository;
+    private final FilterPipeline filterPipeline = new FilterPipeline();
     private FirebaseFirestore db;
-    private ListenerRegistration firestoreListener;
+    private ListenerRegistration statsListener;
+    private LocalDatabaseHelper localDb;
+    private BarcodeLookup barcodeLookup;
+    private boolean statsMissing = false;
 
     private BottomAppBar bottomAppBar;
     private FloatingActionButton fabAdd;
@@ -55,12 +61,13 @@ public class MainActivity extends AppCompatActivity {
 
     private final ActivityResultLauncher<ScanOptions> barcodeLauncher = registerForActivityResult(new ScanContract(),
             result -> {
-                if(result.getContents() != null) {
-                    etSearch.setText(result.getContents());
-                    Toast.makeText(MainActivity.this, getString(R.string.msg_found_scan, result.getContents()), Toast.LENGTH_SHORT).show();
-                }
+                if(result.getContents() != null) openScannedItem(result.getContents());
             });
 
+    // The background stock check posts notifications; a refusal just leaves the Alerts screen
+    private final ActivityResultLauncher<String> notificationPermissionLauncher = registerForActivityResult(
+            new ActivityResultContracts.RequestPermission(), granted -> {});
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -70,9 +77,10 @@ public class MainActivity extends AppCompatActivity {
             userRole = getIntent().getStringExtra("USER_ROLE");
         }
 
+        repository = InventoryRepository.get(this);
         db = FirebaseFirestore.getInstance();
-        itemList = new ArrayList<>();
-        fullList = new ArrayList<>();
+        localDb = LocalDatabaseHelper.get(this);
+        barcodeLookup = new BarcodeLookup(db, repository, localDb);
 
         tvTotalCount = findViewById(R.id.tvSummaryCount);
         tvTotalValue = findViewById(R.id.tvSummaryValue);
@@ -89,8 +97,18 @@ public class MainActivity extends AppCompatActivity {
         setupSearch();
         setupQuickActions();
         setupBottomNavigation();
+        listenForStats();
         listenForRealTimeUpdates();
         setupKeyboardAutoHide();
+        setupStockAlerts();
+    }
+
+    private void setupStockAlerts() {
+        LowStockWorker.schedule(this);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && checkSelfPermission(Manifest.permission.POST_NOTIFICATIONS) != PackageManager.PERMISSION_GRANTED) {
+            notificationPermissionLauncher.launch(Manifest.permission.POST_NOTIFICATIONS);
+        }
     }
 
     private void applyRolePermissions() {
@@ -121,6 +139,27 @@ public class MainActivity extends AppCompatActivity {
     }
 
 
+    // Scan -> item in O(1): memory index, then local SQLite index, then an exact-match query
+    private void openScannedItem(String code) {
+        barcodeLookup.lookup(code, new BarcodeLookup.Callback() {
+            @Override
+            public void onFound(String itemId) {
+                Toast.makeText(MainActivity.this, getString(R.string.msg_found_scan, code), Toast.LENGTH_SHORT).show();
+                Intent intent = new Intent(MainActivity.this, ItemDetailActivity.class);
+                intent.putExtra("itemId", itemId);
+                intent.putExtra("USER_ROLE", userRole);
+                startActivity(intent);
+            }
+
+            @Override
+            public void onNotFound(String barcode) {
+                // Fall back to the old behaviour so partial/unknown codes can still be searched
+                etSearch.setText(barcode);
+                Toast.makeText(MainActivity.this, getString(R.string.msg_barcode_not_found, barcode), Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
     private void setupKeyboardAutoHide() {
         final View rootView = findViewById(android.R.id.content);
         rootView.getViewTreeObserver().addOnGlobalLayoutListener(() -> {
@@ -146,7 +185,9 @@ public class MainActivity extends AppCompatActivity {
             @Override
             public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
             @Override
-            public void onTextChanged(CharSequence s, int start, int before, int count) { filterList(s.toString()); }
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+                filterList(s.toString(), FilterPipeline.SEARCH_DEBOUNCE_MS);
+            }
             @Override
             public void afterTextChanged(Editable s) {}
         });
@@ -170,7 +211,7 @@ public class MainActivity extends AppCompatActivity {
     private void setupRecyclerView() {
         recyclerView = findViewById(R.id.recyclerView);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
-        adapter = new InventoryAdapter(itemList, item -> {
+        adapter = new InventoryAdapter(new ArrayList<>(), item -> {
             Intent intent = new Intent(MainActivity.this, ItemDetailActivity.class);
             intent.putExtra("itemId", item.getId());
             intent.putExtra("USER_ROLE", userRole);
@@ -211,12 +252,22 @@ public class MainActivity extends AppCompatActivity {
                 options.setCaptureActivity(PortraitCaptureActivity.class);
                 barcodeLauncher.launch(options);
             });
+
+            // Long-press: continuous scanning session with batched stock movements (Admin only)
+            scanBtn.setOnLongClickListener(v -> {
+                if ("Admin".equalsIgnoreCase(userRole)) {
+                    startActivity(new Intent(MainActivity.this, ScanSessionActivity.class));
+                } else {
+                    Toast.makeText(this, getString(R.string.msg_access_denied), Toast.LENGTH_SHORT).show();
+                }
+                return true;
+            });
         }
 
         View btnAlerts = findViewById(R.id.btnQuickAlerts);
         if (btnAlerts != null) {
             btnAlerts.setOnClickListener(v -> {
-                Intent intent = new Intent(MainActivity.this, HistoryActivity.class);
+                Intent intent = new Intent(MainActivity.this, AlertsActivity.class);
                 intent.putExtra("USER_ROLE", userRole);
                 startActivity(intent);
             });
@@ -259,68 +310,58 @@ public class MainActivity extends AppCompatActivity {
         });
     }
 
-    private void listenForRealTimeUpdates() {
-        firestoreListener = db.collection("inventory").addSnapshotListener((snapshots, e) -> {
-            if (e != null) return;
-            fullList.clear();
-            if (snapshots != null) {
-                int totalItems = 0;
-                double totalValue = 0.0;
-                for (DocumentSnapshot doc : snapshots) {
-                    InventoryItem item = doc.toObject(InventoryItem.class);
-                    if (item != null) {
-                        item.setId(doc.getId());
-                        fullList.add(item);
-                        totalItems += item.getQuantity();
-                        totalValue += (item.getQuantity() * item.getPrice());
-                    }
-                }
-                if(tvTotalCount != null) tvTotalCount.setText(String.valueOf(totalItems));
-                if(tvTotalValue != null) tvTotalValue.setText("$" + String.format("%.2f", totalValue));
-
-                filterList(etSearch.getText() != null ? etSearch.getText().toString() : "");
+    // Totals come from one aggregate document, available before the catalog finishes loading
+    private void listenForStats() {
+        statsListener = InventoryStats.ref(db).addSnapshotListener((snapshot, e) -> {
+            if (e != null || snapshot == null) return;
+
+            if (!InventoryStats.isSeeded(snapshot)) {
+                // First run after upgrade (the document may already hold early increments):
+                // seed the counters once the server has confirmed the catalog
+                statsMissing = true;
+                InventoryStats.seedIfMissing(db, repository);
+                return;
             }
+            statsMissing = false;
+
+            Long totalQuantity = snapshot.getLong("totalQuantity");
+            Double totalValue = snapshot.getDouble("totalValue");
+            if(tvTotalCount != null) tvTotalCount.setText(String.valueOf(totalQuantity != null ? totalQuantity : 0));
+            if(tvTotalValue != null) tvTotalValue.setText("$" + String.format("%.2f", totalValue != null ? totalValue : 0.0));
         });
     }
 
-    private void filterList(String query) {
-        itemList.clear();
-
-        if (query.isEmpty()) {
-            SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
-            List<InventoryItem> sortedList = new ArrayList<>(fullList);
-
-            Collections.sort(sortedList, (item1, item2) -> {
-                try {
-                    String d1Str = (item1.getDateAdded() != null) ? item1.getDateAdded() : "Jan 01, 1970";
-                    String d2Str = (item2.getDateAdded() != null) ? item2.getDateAdded() : "Jan 01, 1970";
-                    Date d1 = sdf.parse(d1Str);
-                    Date d2 = sdf.parse(d2Str);
-                    return d2.compareTo(d1);
-                } catch (Exception e) {
-                    return 0;
-                }
-            });
+    private void listenForRealTimeUpdates() {
+        // Shared listener owned by InventoryApp; fires immediately if the catalog is already loaded
+        repository.addObserver(this);
+    }
 
-            for (int i = 0; i < Math.min(2, sortedList.size()); i++) {
-                itemList.add(sortedList.get(i));
-            }
-        }
-        else {
-            String q = query.toLowerCase().trim();
-            for (InventoryItem i : fullList) {
-                if (i.getName().toLowerCase().contains(q) ||
-                        (i.getBarcode() != null && i.getBarcode().toLowerCase().contains(q))) {
-                    itemList.add(i);
-                }
-            }
-        }
+    @Override
+    public void onInventoryChanged(InventoryRepository repository) {
+        if (statsMissing) InventoryStats.seedIfMissing(db, repository);
 
-        if(adapter != null) adapter.notifyDataSetChanged();
+        filterList(etSearch.getText() != null ? etSearch.getText().toString() : "", 0);
+    }
+
+    // Runs on the background pipeline; stale queries are dropped before reaching the adapter
+    private void filterList(String query, long debounceMs) {
+        final int recentCount = getResources().getInteger(R.integer.dashboard_recent_items);
+
+        filterPipeline.submit(() -> {
+            if (query.trim().isEmpty()) {
+                // Bounded top-N selection, no copy + full sort of the catalog
+                return repository.getRecentItems(recentCount);
+            }
+            return repository.search(query);
+        }, debounceMs, itemList -> {
+            if(adapter != null) adapter.submitList(itemList);
+        });
     }
 
     private void handleLogout() {
         FirebaseAuth.getInstance().signOut();
+        repository.stop();
+        LowStockWorker.cancel(this);
         SharedPreferences prefs = getSharedPreferences("UserPrefs", MODE_PRIVATE);
         prefs.edit().clear().apply();
 
@@ -343,7 +384,9 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (firestoreListener != null) firestoreListener.remove();
+        repository.removeObserver(this);
+        if (statsListener != null) statsListener.remove();
+        filterPipeline.shutdown();
     }
 
 }
@@ -2,18 +2,25 @@ package com.example.inventory;
 
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.net.Uri;
 import android.os.Bundle;
 import android.text.InputType;
 import android.text.TextUtils;
 import android.view.View;
 import android.widget.EditText;
 import android.widget.LinearLayout;
+import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.example.inventory.alerts.LowStockWorker;
+import com.example.inventory.importing.InventoryImporter;
+import com.example.inventory.repository.InventoryRepository;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.card.MaterialCardView;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
@@ -25,8 +32,8 @@ import com.google.firebase.firestore.FirebaseFirestore;
 public class ProfileActivity extends AppCompatActivity {
 
     private TextView tvUserName, tvUserEmail, tvUserRole;
-    private LinearLayout btnEditName, btnChangePassword, btnHelp, btnApproveUsers;
-    private View dividerApprove;
+    private LinearLayout btnEditName, btnChangePassword, btnHelp, btnApproveUsers, btnImportItems;
+    private View dividerApprove, dividerImport;
     private MaterialCardView cardLogout;
 
     private FirebaseAuth mAuth;
@@ -34,6 +41,11 @@ public class ProfileActivity extends AppCompatActivity {
     private String userRole = "Staff";
     private String currentName = "";
 
+    private final ActivityResultLauncher<String[]> importFileLauncher = registerForActivityResult(
+            new ActivityResultContracts.OpenDocument(), uri -> {
+                if (uri != null) startImport(uri);
+            });
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -50,6 +62,8 @@ public class ProfileActivity extends AppCompatActivity {
         btnEditName = findViewById(R.id.btnEditName);
         btnApproveUsers = findViewById(R.id.btnApproveUsers);
         dividerApprove = findViewById(R.id.dividerApprove);
+        btnImportItems = findViewById(R.id.btnImportItems);
+        dividerImport = findViewById(R.id.dividerImport);
         btnChangePassword = findViewById(R.id.btnChangePassword);
         btnHelp = findViewById(R.id.btnHelp);
         cardLogout = findViewById(R.id.cardLogout);
@@ -63,6 +77,8 @@ public class ProfileActivity extends AppCompatActivity {
         if ("Admin".equalsIgnoreCase(userRole)) {
             btnApproveUsers.setVisibility(View.VISIBLE);
             dividerApprove.setVisibility(View.VISIBLE);
+            btnImportItems.setVisibility(View.VISIBLE);
+            dividerImport.setVisibility(View.VISIBLE);
         }
 
         loadUserInfo();
@@ -87,6 +103,8 @@ public class ProfileActivity extends AppCompatActivity {
     private void setupClickListeners() {
         btnEditName.setOnClickListener(v -> showEditNameDialog());
         btnApproveUsers.setOnClickListener(v -> showApprovalDialog());
+        btnImportItems.setOnClickListener(v -> importFileLauncher.launch(new String[]{
+                "text/csv", "text/comma-separated-values", "text/tab-separated-values", "text/plain"}));
         btnChangePassword.setOnClickListener(v -> showChangePasswordDialog());
         btnHelp.setOnClickListener(v -> showHelpDialog());
         cardLogout.setOnClickListener(v -> handleLogout());
@@ -171,6 +189,79 @@ public class ProfileActivity extends AppCompatActivity {
                 .show();
     }
 
+    private void startImport(Uri uri) {
+        // Duplicate barcodes are checked against the shared catalog, so wait until it is loaded
+        InventoryRepository repository = InventoryRepository.get(this);
+        repository.addObserver(new InventoryRepository.Observer() {
+            @Override
+            public void onInventoryChanged(InventoryRepository repo) {
+                repo.removeObserver(this);
+                runImport(uri, repo);
+            }
+        });
+    }
+
+    private void runImport(Uri uri, InventoryRepository repository) {
+        View view = getLayoutInflater().inflate(R.layout.dialog_export_progress, null);
+        ProgressBar progressBar = view.findViewById(R.id.progressExport);
+        TextView tvProgress = view.findViewById(R.id.tvExportProgress);
+
+        InventoryImporter importer = new InventoryImporter(this, db, repository);
+        AlertDialog dialog = new AlertDialog.Builder(this)
+                .setTitle(getString(R.string.title_importing))
+                .setView(view)
+                .setCancelable(false)
+                .setNegativeButton(getString(R.string.dialog_btn_cancel), (d, which) -> importer.cancel())
+                .show();
+
+        importer.start(uri, new InventoryImporter.Listener() {
+            @Override
+            public void onProgress(long bytesRead, long totalBytes, int imported, int skipped) {
+                if (totalBytes <= 0) return;
+                int percent = (int) Math.min(100, bytesRead * 100 / totalBytes);
+                progressBar.setIndeterminate(false);
+                progressBar.setMax(100);
+                progressBar.setProgress(percent);
+                tvProgress.setText(getString(R.string.msg_import_progress, percent, imported, skipped));
+            }
+
+            @Override
+            public void onFinished(InventoryImporter.Summary summary) {
+                if (isFinishing() || isDestroyed()) return;
+                dialog.dismiss();
+                showImportSummary(summary);
+            }
+
+            @Override
+            public void onCancelled(InventoryImporter.Summary summary) {
+                if (isFinishing() || isDestroyed()) return;
+                dialog.dismiss();
+                Toast.makeText(ProfileActivity.this, getString(R.string.msg_import_cancelled, summary.imported), Toast.LENGTH_LONG).show();
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                if (isFinishing() || isDestroyed()) return;
+                dialog.dismiss();
+                Toast.makeText(ProfileActivity.this, getString(R.string.msg_import_failed, e.getMessage()), Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    private void showImportSummary(InventoryImporter.Summary summary) {
+        StringBuilder message = new StringBuilder(getString(R.string.msg_import_summary,
+                summary.imported, summary.duplicates, summary.invalid, summary.alreadyImported));
+        if (!summary.errors.isEmpty()) {
+            message.append("\n");
+            for (String error : summary.errors) message.append("\n").append(error);
+        }
+        new AlertDialog.Builder(this)
+                .setTitle(getString(R.string.title_import_done))
+                .setMessage(message.toString())
+                .setPositiveButton("OK", null)
+                .show();
+    }
+
     private void showChangePasswordDialog() {
         FirebaseUser user = mAuth.getCurrentUser();
         if (user != null && user.getEmail() != null) {
@@ -197,6 +288,8 @@ public class ProfileActivity extends AppCompatActivity {
 
     private void handleLogout() {
         mAuth.signOut();
+        InventoryRepository.get(this).stop();
+        LowStockWorker.cancel(this);
         SharedPreferences prefs = getSharedPreferences("UserPrefs", MODE_PRIVATE);
         prefs.edit().clear().apply();
         Intent intent = new Intent(ProfileActivity.this, LoginActivity.class);
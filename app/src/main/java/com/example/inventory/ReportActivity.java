@@ -1,18 +1,10 @@
 package com.example.inventory;
 
 import android.app.DatePickerDialog;
-import android.content.ContentValues;
 import android.content.Intent;
-import android.graphics.Bitmap;
-import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.pdf.PdfDocument;
-import android.net.Uri;
-import android.os.Build;
 import android.os.Bundle;
-import android.os.Environment;
-import android.provider.MediaStore;
 import android.view.View;
 import android.widget.Button;
 import android.widget.TextView;
@@ -24,33 +16,42 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.inventory.adapter.ReportAdapter;
+import com.example.inventory.export.CsvWriter;
+import com.example.inventory.export.ExportJob;
+import com.example.inventory.export.ExportProgressDialog;
+import com.example.inventory.export.PdfStreamWriter;
 import com.example.inventory.model.InventoryItem;
+import com.example.inventory.repository.InventoryRepository;
+import com.example.inventory.repository.InventoryValuation;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
-import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.AggregateField;
+import com.google.firebase.firestore.AggregateSource;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.zxing.BarcodeFormat;
-import com.journeyapps.barcodescanner.BarcodeEncoder;
+import com.google.zxing.WriterException;
+import com.example.inventory.barcode.BarcodeVectorRenderer;
 
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
 import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 
-public class ReportActivity extends AppCompatActivity {
+public class ReportActivity extends AppCompatActivity implements InventoryRepository.Observer {
 
     private RecyclerView recyclerView;
     private ReportAdapter adapter;
     private List<InventoryItem> fullList;
     private List<InventoryItem> filteredList;
-    private FirebaseFirestore db;
+    private InventoryRepository repository;
 
-    private TextView tvStartDate, tvEndDate, tvReportTotal;
+    private TextView tvStartDate, tvEndDate, tvReportTotal, tvReportCogs, tvReportCogsLabel;
+    private int cogsRequest = 0; // Drops sums that finish after the range changed again
+    private boolean rangeCogsExact = false; // The shown range COGS is the server sum (not the month fallback)
     private Button btnClearDate;
 
     private Date startDate = null;
@@ -59,6 +60,20 @@ public class ReportActivity extends AppCompatActivity {
 
     private String userRole = "Staff";
 
+    // Every column the CSV export offers; RFC 4180 quoting is handled by CsvWriter
+    private static final List<CsvWriter.Column<InventoryItem>> CSV_COLUMNS = Arrays.asList(
+            new CsvWriter.Column<>("Name", InventoryItem::getName),
+            new CsvWriter.Column<>("Category", InventoryItem::getCategory),
+            new CsvWriter.Column<>("Quantity", item -> String.valueOf(item.getQuantity())),
+            new CsvWriter.Column<>("Price", item -> String.valueOf(item.getPrice())),
+            new CsvWriter.Column<>("Sale", item -> String.valueOf(item.getSale())),
+            new CsvWriter.Column<>("Min Stock", item -> String.valueOf(item.getMinStock())),
+            new CsvWriter.Column<>("Date Added", item -> item.getDateAdded() != null ? item.getDateAdded() : "N/A"),
+            new CsvWriter.Column<>("Barcode", InventoryItem::getBarcode),
+            new CsvWriter.Column<>("Total Value", item -> String.valueOf(InventoryValuation.valueOf(item))));
+    // Starts with the columns the export always had
+    private final boolean[] csvColumnChoice = {true, false, true, true, false, true, true, false, true};
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -68,13 +83,15 @@ public class ReportActivity extends AppCompatActivity {
             userRole = getIntent().getStringExtra("USER_ROLE");
         }
 
-        db = FirebaseFirestore.getInstance();
+        repository = InventoryRepository.get(this);
         fullList = new ArrayList<>();
         filteredList = new ArrayList<>();
 
         tvStartDate = findViewById(R.id.tvStartDate);
         tvEndDate = findViewById(R.id.tvEndDate);
         tvReportTotal = findViewById(R.id.tvReportTotal);
+        tvReportCogs = findViewById(R.id.tvReportCogs);
+        tvReportCogsLabel = findViewById(R.id.tvReportCogsLabel);
         btnClearDate = findViewById(R.id.btnClearDate);
 
         recyclerView = findViewById(R.id.recyclerView);
@@ -105,27 +122,21 @@ public class ReportActivity extends AppCompatActivity {
             tvStartDate.setText("Select Date");
             tvEndDate.setText("Select Date");
             btnClearDate.setVisibility(View.GONE);
-            applyFilter();
+            applyFilter(true);
         });
     }
 
     private void loadReports() {
-        db.collection("inventory")
-                .orderBy("dateAdded")
-                .addSnapshotListener((snapshots, e) -> {
-                    if (e != null) return;
-                    fullList.clear();
-                    if (snapshots != null) {
-                        for (DocumentSnapshot doc : snapshots) {
-                            InventoryItem item = doc.toObject(InventoryItem.class);
-                            if (item != null) {
-                                item.setId(doc.getId());
-                                fullList.add(item);
-                            }
-                        }
-                    }
-                    applyFilter();
-                });
+        // Shared listener owned by InventoryApp; fires immediately if the catalog is already loaded
+        repository.addObserver(this);
+    }
+
+    @Override
+    public void onInventoryChanged(InventoryRepository repository) {
+        // Oldest first on the epoch key (undated legacy items first, as orderBy("dateAdded") listed them)
+        fullList = repository.getItems();
+        Collections.sort(fullList, (a, b) -> Long.compare(a.getDateAddedMillis(), b.getDateAddedMillis()));
+        applyFilter(false);
     }
 
     private void showDatePicker(boolean isStart) {
@@ -148,7 +159,7 @@ public class ReportActivity extends AppCompatActivity {
             }
 
             btnClearDate.setVisibility(View.VISIBLE);
-            applyFilter();
+            applyFilter(true);
 
         }, cal.get(Calendar.YEAR), cal.get(Calendar.MONTH), cal.get(Calendar.DAY_OF_MONTH));
 
@@ -156,40 +167,76 @@ public class ReportActivity extends AppCompatActivity {
         dialog.show();
     }
 
-    private void applyFilter() {
+    // rangeChanged: the dates were picked or cleared (vs. a catalog update)
+    private void applyFilter(boolean rangeChanged) {
         filteredList.clear();
         double totalValue = 0;
 
         if (startDate == null && endDate == null) {
             filteredList.addAll(fullList);
         } else {
+            // Range check on the epoch key (no per-item parsing); undated items can't be in a range
+            long from = (startDate != null) ? startDate.getTime() : Long.MIN_VALUE;
+            long to = (endDate != null) ? endDate.getTime() : Long.MAX_VALUE;
             for (InventoryItem item : fullList) {
-                String dateStr = item.getDateAdded();
-                if (dateStr != null && !dateStr.isEmpty()) {
-                    try {
-                        Date itemDate = displayFormat.parse(dateStr);
-                        if (itemDate != null) {
-                            boolean passes = true;
-                            if (startDate != null && itemDate.before(startDate)) passes = false;
-                            if (endDate != null && itemDate.after(endDate)) passes = false;
-
-                            if (passes) {
-                                filteredList.add(item);
-                            }
-                        }
-                    } catch (Exception e) { e.printStackTrace(); }
+                long added = item.getDateAddedMillis();
+                if (added > 0 && added >= from && added <= to) {
+                    filteredList.add(item);
                 }
             }
         }
 
+        // FIFO value from the running totals on each item (no batch reads)
         for (InventoryItem item : filteredList) {
-            totalValue += (item.getQuantity() * item.getPrice());
+            totalValue += InventoryValuation.valueOf(item);
         }
         tvReportTotal.setText("$" + String.format("%.2f", totalValue));
 
+        updateCogs(rangeChanged);
+
         adapter.notifyDataSetChanged();
     }
 
+    // COGS is about movements in the period, so it covers every item, not just those added in it
+    private void updateCogs(boolean rangeChanged) {
+        if (!rangeChanged && (startDate != null || endDate != null)) {
+            // Catalog updates don't re-run the (billed) server sum; it is refreshed when the range changes
+            if (!rangeCogsExact) showMonthCogs();
+            return;
+        }
+
+        final int request = ++cogsRequest;
+        if (startDate == null && endDate == null) {
+            tvReportCogsLabel.setText(getString(R.string.label_cogs));
+            double cogs = InventoryValuation.summarize(repository.getItems(), null, null).cogs;
+            tvReportCogs.setText("$" + String.format("%.2f", cogs));
+            return;
+        }
+
+        // Exact range: summed on the server from the cost stored on each stock-out record
+        InventoryValuation.cogsSum(FirebaseFirestore.getInstance(), startDate, endDate)
+                .get(AggregateSource.SERVER)
+                .addOnSuccessListener(result -> {
+                    if (request != cogsRequest) return;
+                    rangeCogsExact = true;
+                    Double cogs = result.getDouble(AggregateField.sum("cogs"));
+                    tvReportCogsLabel.setText(getString(R.string.label_cogs));
+                    tvReportCogs.setText("$" + String.format("%.2f", cogs != null ? cogs : 0.0));
+                })
+                .addOnFailureListener(e -> {
+                    if (request != cogsRequest) return;
+                    rangeCogsExact = false;
+                    showMonthCogs();
+                });
+    }
+
+    // Offline fallback: the per-month totals on the items (kept current locally), labelled as such
+    private void showMonthCogs() {
+        double cogs = InventoryValuation.summarize(repository.getItems(), startDate, endDate).cogs;
+        tvReportCogsLabel.setText(getString(R.string.label_cogs_months));
+        tvReportCogs.setText("$" + String.format("%.2f", cogs));
+    }
+
     private void showExportDialog() {
         if (filteredList.isEmpty()) {
             Toast.makeText(this, "No data to export", Toast.LENGTH_SHORT).show();
@@ -199,7 +246,7 @@ public class ReportActivity extends AppCompatActivity {
                 .setTitle(getString(R.string.dialog_export_report))
                 .setMessage(getString(R.string.dialog_choose_format))
                 .setPositiveButton(getString(R.string.dialog_pdf), (dialog, which) -> generateBulkPDF())
-                .setNegativeButton(getString(R.string.dialog_csv), (dialog, which) -> generateCSV())
+                .setNegativeButton(getString(R.string.dialog_csv), (dialog, which) -> showCsvOptions())
                 .setNeutralButton(getString(R.string.dialog_btn_cancel), null)
                 .show();
     }
@@ -216,165 +263,167 @@ public class ReportActivity extends AppCompatActivity {
     }
 
     private void generateBulkPDF() {
-        PdfDocument document = new PdfDocument();
-        int pageNumber = 1;
-        PdfDocument.PageInfo pageInfo = new PdfDocument.PageInfo.Builder(595, 842, pageNumber).create();
-        PdfDocument.Page page = document.startPage(pageInfo);
-        Canvas canvas = page.getCanvas();
+        // Snapshot what the background writer needs; it must not touch the live list or views
+        final List<InventoryItem> rows = new ArrayList<>(filteredList);
+        final String title = getDynamicReportTitle();
+
+        String safeName = (startDate != null) ? "Filtered_Range" : "Full_Report";
+        String fileName = "Inventify_" + safeName + "_" + System.currentTimeMillis() + ".pdf";
+        ExportProgressDialog.run(this, fileName, "application/pdf",
+                (out, progress) -> writeBulkPDF(out, progress, rows, title));
+    }
+
+    // Runs on the export thread; each finished page is streamed out and dropped
+    private void writeBulkPDF(OutputStream out, ExportJob.Progress progress,
+                              List<InventoryItem> rows, String title) throws Exception {
+        PdfStreamWriter pdf = new PdfStreamWriter(out);
         Paint paint = new Paint();
+        int pageNumber = 1;
+        pdf.startPage();
 
-        int y = drawReportPdfHeader(canvas, paint, pageNumber);
+        int y = drawReportPdfHeader(pdf, paint, pageNumber, title);
 
+        // Barcodes are drawn as vector bars: no bitmap per row
+        BarcodeVectorRenderer barcodeRenderer = new BarcodeVectorRenderer();
+        Paint barPaint = new Paint();
+        barPaint.setColor(Color.BLACK);
         double totalValue = 0;
         int rowCount = 0;
 
-        for (InventoryItem item : filteredList) {
+        for (InventoryItem item : rows) {
+            progress.checkCancelled();
 
             // Check if we reached the bottom (Leaving room for the footer)
             if (y > 740) {
-                document.finishPage(page);
+                pdf.finishPage();
                 pageNumber++;
-                pageInfo = new PdfDocument.PageInfo.Builder(595, 842, pageNumber).create();
-                page = document.startPage(pageInfo);
-                canvas = page.getCanvas();
-                y = drawReportPdfHeader(canvas, paint, pageNumber);
+                pdf.startPage();
+                y = drawReportPdfHeader(pdf, paint, pageNumber, title);
             }
 
             if (rowCount % 2 != 0) {
                 paint.setColor(Color.rgb(250, 250, 250));
-                canvas.drawRect(50, y - 35, 545, y + 35, paint);
+                pdf.drawRect(50, y - 35, 545, y + 35, paint);
             }
 
             paint.setColor(Color.BLACK);
             paint.setTextSize(14);
             paint.setFakeBoldText(true);
-            canvas.drawText(item.getName(), 60, y - 5, paint);
+            pdf.drawText(item.getName(), 60, y - 5, paint);
 
             paint.setTextSize(10);
             paint.setColor(Color.GRAY);
             paint.setFakeBoldText(false);
             String bText = (item.getBarcode() != null && !item.getBarcode().isEmpty()) ? item.getBarcode() : "N/A";
-            canvas.drawText("SN: " + bText, 60, y + 12, paint);
+            pdf.drawText("SN: " + bText, 60, y + 12, paint);
 
             paint.setTextSize(14);
             paint.setColor(Color.BLACK);
-            canvas.drawText(String.valueOf(item.getQuantity()), 230, y, paint);
-            canvas.drawText("$" + String.format("%.2f", item.getPrice()), 280, y, paint);
+            pdf.drawText(String.valueOf(item.getQuantity()), 230, y, paint);
+            pdf.drawText("$" + String.format("%.2f", item.getPrice()), 280, y, paint);
 
-            double lineTotal = item.getPrice() * item.getQuantity();
+            double lineTotal = InventoryValuation.valueOf(item);
             paint.setColor(Color.rgb(56, 142, 60)); // Green
             paint.setFakeBoldText(true);
-            canvas.drawText("$" + String.format("%.2f", lineTotal), 350, y, paint);
+            pdf.drawText("$" + String.format("%.2f", lineTotal), 350, y, paint);
             paint.setFakeBoldText(false);
 
             if (!bText.equals("N/A")) {
                 try {
-                    BarcodeEncoder barcodeEncoder = new BarcodeEncoder();
-                    Bitmap bitmap = barcodeEncoder.encodeBitmap(bText, BarcodeFormat.CODE_128, 90, 35);
-                    canvas.drawBitmap(bitmap, 440, y - 20, null);
-                } catch (Exception e) { e.printStackTrace(); }
+                    barcodeRenderer.draw(bText, BarcodeFormat.CODE_128, 440, y - 20, 90, 35,
+                            (l, t, r, b) -> pdf.drawRect(l, t, r, b, barPaint));
+                } catch (WriterException | IllegalArgumentException e) { e.printStackTrace(); }
             } else {
                 paint.setColor(Color.LTGRAY);
                 paint.setTextSize(10);
-                canvas.drawText("NO BARCODE", 445, y, paint);
+                pdf.drawText("NO BARCODE", 445, y, paint);
             }
 
             y += 70;
             totalValue += lineTotal;
             rowCount++;
+            progress.update(rowCount, rows.size());
         }
 
         // Draw Footer Total Block at the very end
         paint.setColor(Color.rgb(98, 0, 238));
-        canvas.drawRect(50, y - 10, 545, y + 35, paint);
+        pdf.drawRect(50, y - 10, 545, y + 35, paint);
 
         paint.setColor(Color.WHITE);
         paint.setFakeBoldText(true);
         paint.setTextSize(16);
-        canvas.drawText("TOTAL INVENTORY VALUE:", 150, y + 15, paint);
-        canvas.drawText("$" + String.format("%.2f", totalValue), 350, y + 15, paint);
-
-        document.finishPage(page);
+        pdf.drawText("TOTAL INVENTORY VALUE:", 150, y + 15, paint);
+        pdf.drawText("$" + String.format("%.2f", totalValue), 350, y + 15, paint);
 
-        // Save Logic
-        String safeName = (startDate != null) ? "Filtered_Range" : "Full_Report";
-        String fileName = "Inventify_" + safeName + "_" + System.currentTimeMillis() + ".pdf";
-        saveFile(document, fileName, "application/pdf");
+        pdf.finish();
     }
 
-    private int drawReportPdfHeader(Canvas canvas, Paint paint, int pageNumber) {
+    private int drawReportPdfHeader(PdfStreamWriter pdf, Paint paint, int pageNumber, String title) {
         paint.setColor(Color.rgb(98, 0, 238));
-        canvas.drawRect(0, 0, 595, 130, paint);
+        pdf.drawRect(0, 0, 595, 130, paint);
 
         paint.setColor(Color.WHITE);
         paint.setTextSize(24);
         paint.setFakeBoldText(true);
-        canvas.drawText(getDynamicReportTitle(), 50, 60, paint);
+        pdf.drawText(title, 50, 60, paint);
 
         paint.setTextSize(14);
         paint.setFakeBoldText(false);
         paint.setColor(Color.rgb(224, 224, 224));
-        canvas.drawText("Inventify Full System Report - Page " + pageNumber, 50, 95, paint);
+        pdf.drawText("Inventify Full System Report - Page " + pageNumber, 50, 95, paint);
 
         int y = 170;
         paint.setColor(Color.rgb(240, 240, 240));
-        canvas.drawRect(50, y - 25, 545, y + 15, paint);
+        pdf.drawRect(50, y - 25, 545, y + 15, paint);
 
         paint.setColor(Color.BLACK);
         paint.setTextSize(12);
         paint.setFakeBoldText(true);
-        canvas.drawText("Product", 60, y, paint);
-        canvas.drawText("Qty", 230, y, paint);
-        canvas.drawText("Price", 280, y, paint);
-        canvas.drawText("Total Asset", 350, y, paint);
-        canvas.drawText("Barcode", 450, y, paint);
+        pdf.drawText("Product", 60, y, paint);
+        pdf.drawText("Qty", 230, y, paint);
+        pdf.drawText("Price", 280, y, paint);
+        pdf.drawText("Total Asset", 350, y, paint);
+        pdf.drawText("Barcode", 450, y, paint);
 
         return y + 45; // Start Y for rows
     }
 
-    private void generateCSV() {
-        StringBuilder data = new StringBuilder();
-        data.append("Name,Quantity,Price,Min Stock,Date Added,Total Value\n");
-        for (InventoryItem item : filteredList) {
-            double totalVal = item.getQuantity() * item.getPrice();
-            data.append(item.getName()).append(",");
-            data.append(item.getQuantity()).append(",");
-            data.append(item.getPrice()).append(",");
-            data.append(item.getMinStock()).append(",");
-            data.append(item.getDateAdded() != null ? item.getDateAdded().replace(",", " ") : "N/A").append(",");
-            data.append(totalVal).append("\n");
-        }
-        String fileName = "Inventory_Data_" + System.currentTimeMillis() + ".csv";
-        saveFile(data.toString(), fileName, "text/csv");
+    private void showCsvOptions() {
+        String[] headers = new String[CSV_COLUMNS.size()];
+        for (int i = 0; i < headers.length; i++) headers[i] = CSV_COLUMNS.get(i).header;
+
+        new AlertDialog.Builder(this)
+                .setTitle(getString(R.string.title_csv_columns))
+                .setMultiChoiceItems(headers, csvColumnChoice, (dialog, which, isChecked) -> csvColumnChoice[which] = isChecked)
+                .setPositiveButton(getString(R.string.dialog_csv), (dialog, which) -> generateCSV(false))
+                .setNeutralButton(getString(R.string.dialog_csv_gzip), (dialog, which) -> generateCSV(true))
+                .setNegativeButton(getString(R.string.dialog_btn_cancel), null)
+                .show();
     }
 
-    private void saveFile(Object content, String fileName, String mimeType) {
-        try {
-            OutputStream outputStream = null;
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-                ContentValues values = new ContentValues();
-                values.put(MediaStore.MediaColumns.DISPLAY_NAME, fileName);
-                values.put(MediaStore.MediaColumns.MIME_TYPE, mimeType);
-                values.put(MediaStore.MediaColumns.RELATIVE_PATH, Environment.DIRECTORY_DOWNLOADS);
-                Uri uri = getContentResolver().insert(MediaStore.Downloads.EXTERNAL_CONTENT_URI, values);
-                if (uri != null) outputStream = getContentResolver().openOutputStream(uri);
-            } else {
-                File file = new File(Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS), fileName);
-                outputStream = new FileOutputStream(file);
-            }
-            if (outputStream != null) {
-                if (content instanceof PdfDocument) {
-                    ((PdfDocument) content).writeTo(outputStream);
-                    ((PdfDocument) content).close();
-                } else if (content instanceof String) {
-                    outputStream.write(((String) content).getBytes());
-                }
-                outputStream.close();
-                Toast.makeText(this, "File Saved Successfully!", Toast.LENGTH_SHORT).show();
-            }
-        } catch (IOException e) {
-            Toast.makeText(this, "Error saving file: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+    private void generateCSV(boolean gzip) {
+        final List<CsvWriter.Column<InventoryItem>> columns = new ArrayList<>();
+        for (int i = 0; i < CSV_COLUMNS.size(); i++) {
+            if (csvColumnChoice[i]) columns.add(CSV_COLUMNS.get(i));
         }
+        if (columns.isEmpty()) {
+            Toast.makeText(this, getString(R.string.msg_select_columns), Toast.LENGTH_SHORT).show();
+            return;
+        }
+        final List<InventoryItem> rows = new ArrayList<>(filteredList);
+
+        String fileName = "Inventory_Data_" + System.currentTimeMillis() + (gzip ? ".csv.gz" : ".csv");
+        ExportProgressDialog.run(this, fileName, gzip ? "application/gzip" : "text/csv", (out, progress) -> {
+            CsvWriter csv = new CsvWriter(out, gzip);
+            csv.writeHeader(columns);
+            int done = 0;
+            for (InventoryItem item : rows) {
+                progress.checkCancelled();
+                csv.writeRow(columns, item);
+                progress.update(++done, rows.size());
+            }
+            csv.finish();
+        });
     }
 
     private void setupNavigation() {
@@ -420,4 +469,9 @@ public class ReportActivity extends AppCompatActivity {
         }
     }
 
-}
\ No newline at end of file
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        repository.removeObserver(this);
+    }
+}
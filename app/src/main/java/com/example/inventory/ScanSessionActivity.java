@@ -0,0 +1,171 @@
+package com.example.inventory;
+
+import android.Manifest;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.widget.ImageView;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.ContextCompat;
+
+import com.example.inventory.db.LocalDatabaseHelper;
+import com.example.inventory.model.InventoryItem;
+import com.example.inventory.repository.InventoryRepository;
+import com.example.inventory.repository.StockMovementBatcher;
+import com.google.android.material.button.MaterialButtonToggleGroup;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.journeyapps.barcodescanner.BarcodeCallback;
+import com.journeyapps.barcodescanner.BarcodeResult;
+import com.journeyapps.barcodescanner.BeepManager;
+import com.journeyapps.barcodescanner.DecoratedBarcodeView;
+
+/**
+ * Continuous receiving / picking mode: the camera stays open and every scan is
+ * a +1 / -1 movement that StockMovementBatcher commits in coalesced batches.
+ */
+public class ScanSessionActivity extends AppCompatActivity {
+
+    // The decoder reports the same code many times while it stays in frame
+    private static final long DUPLICATE_WINDOW_MS = 1500;
+
+    private DecoratedBarcodeView barcodeView;
+    private TextView tvLastScan, tvPending;
+    private BeepManager beepManager;
+
+    private InventoryRepository repository;
+    private LocalDatabaseHelper localDb;
+    private StockMovementBatcher batcher;
+    // Keeps the shared catalog (and its barcode index) loaded while scanning
+    private final InventoryRepository.Observer inventoryObserver = repo -> { };
+
+    private boolean stockOutMode = false;
+    private String lastCode = null;
+    private long lastCodeTime = 0;
+
+    private final ActivityResultLauncher<String> cameraPermissionLauncher = registerForActivityResult(
+            new ActivityResultContracts.RequestPermission(), granted -> {
+                if (granted) {
+                    barcodeView.resume();
+                } else {
+                    Toast.makeText(this, getString(R.string.msg_camera_required), Toast.LENGTH_SHORT).show();
+                    finish();
+                }
+            });
+
+    private final BarcodeCallback scanCallback = new BarcodeCallback() {
+        @Override
+        public void barcodeResult(BarcodeResult result) {
+            if (result.getText() != null) onScanned(result.getText().trim());
+        }
+    };
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_scan_session);
+
+        repository = InventoryRepository.get(this);
+        localDb = LocalDatabaseHelper.get(this);
+        batcher = new StockMovementBatcher(FirebaseFirestore.getInstance(), repository, localDb,
+                new StockMovementBatcher.Listener() {
+                    @Override
+                    public void onCommitted(int itemCount, int unitCount) {
+                        updatePendingText();
+                    }
+
+                    @Override
+                    public void onFailed(Exception e) {
+                        // Failed movements are back in the pending count and retried
+                        updatePendingText();
+                        Toast.makeText(ScanSessionActivity.this, getString(R.string.msg_error_prefix, e.getMessage()), Toast.LENGTH_SHORT).show();
+                    }
+
+                    @Override
+                    public void onDiscarded(int itemCount, Exception e) {
+                        updatePendingText();
+                        Toast.makeText(ScanSessionActivity.this, getString(R.string.msg_scan_discarded, itemCount, e.getMessage()), Toast.LENGTH_LONG).show();
+                    }
+                });
+
+        barcodeView = findViewById(R.id.barcodeScanner);
+        tvLastScan = findViewById(R.id.tvLastScan);
+        tvPending = findViewById(R.id.tvPending);
+        beepManager = new BeepManager(this);
+
+        ImageView btnBack = findViewById(R.id.btnBack);
+        btnBack.setOnClickListener(v -> finish());
+        findViewById(R.id.btnFinish).setOnClickListener(v -> {
+            batcher.flush();
+            finish();
+        });
+
+        MaterialButtonToggleGroup toggleMode = findViewById(R.id.toggleMode);
+        toggleMode.addOnButtonCheckedListener((group, checkedId, isChecked) -> {
+            if (isChecked) stockOutMode = (checkedId == R.id.btnModeOut);
+        });
+
+        barcodeView.setStatusText("");
+        barcodeView.decodeContinuous(scanCallback);
+        updatePendingText();
+
+        repository.addObserver(inventoryObserver);
+    }
+
+    private void onScanned(String code) {
+        long now = SystemClock.elapsedRealtime();
+        if (code.equals(lastCode) && now - lastCodeTime < DUPLICATE_WINDOW_MS) return;
+        lastCode = code;
+        lastCodeTime = now;
+
+        InventoryItem item = repository.findByBarcode(code);
+        if (item == null) {
+            tvLastScan.setText(getString(R.string.msg_barcode_not_found, code));
+            return;
+        }
+
+        int delta = stockOutMode ? -1 : 1;
+        if (!batcher.add(item, delta)) {
+            tvLastScan.setText(getString(R.string.msg_stock_zero));
+            return;
+        }
+
+        beepManager.playBeepSoundAndVibrate();
+        int shown = item.getQuantity() + batcher.getPendingDelta(item.getId());
+        tvLastScan.setText(getString(R.string.msg_scan_result, item.getName(), stockOutMode ? "-1" : "+1", shown));
+        updatePendingText();
+    }
+
+    private void updatePendingText() {
+        tvPending.setText(getString(R.string.msg_scan_pending, batcher.getPendingUnits(), batcher.getPendingItemCount()));
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA) == PackageManager.PERMISSION_GRANTED) {
+            barcodeView.resume();
+        } else {
+            cameraPermissionLauncher.launch(Manifest.permission.CAMERA);
+        }
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        barcodeView.pause();
+        // Don't keep movements in memory while we're in the background
+        batcher.flush();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        batcher.close();
+        repository.removeObserver(inventoryObserver);
+    }
+}
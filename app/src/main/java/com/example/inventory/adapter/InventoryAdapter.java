@@ -6,14 +6,32 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.inventory.R;
 import com.example.inventory.model.InventoryItem;
+import com.example.inventory.repository.StockStatus;
 import java.util.List;
 
 public class InventoryAdapter extends RecyclerView.Adapter<InventoryAdapter.ViewHolder> {
 
-    private List<InventoryItem> items;
+    // Items are matched by id; the store swaps in a new instance whenever a document changes,
+    // so a reference check is enough to detect modified contents.
+    private static final DiffUtil.ItemCallback<InventoryItem> DIFF_CALLBACK = new DiffUtil.ItemCallback<InventoryItem>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull InventoryItem oldItem, @NonNull InventoryItem newItem) {
+            return oldItem.getId() != null && oldItem.getId().equals(newItem.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull InventoryItem oldItem, @NonNull InventoryItem newItem) {
+            return oldItem == newItem;
+        }
+    };
+
+    // Diffs on a background thread; a newer submitList() cancels an in-flight one
+    private final AsyncListDiffer<InventoryItem> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
     private OnItemClickListener listener;
 
     public interface OnItemClickListener {
@@ -21,8 +39,16 @@ public class InventoryAdapter extends RecyclerView.Adapter<InventoryAdapter.View
     }
 
     public InventoryAdapter(List<InventoryItem> items, OnItemClickListener listener) {
-        this.items = items;
         this.listener = listener;
+        differ.submitList(items);
+    }
+
+    /**
+     * Replaces the displayed rows. The diff runs off the main thread and only the
+     * granular inserts/removes/changes are dispatched. The list must not be mutated afterwards.
+     */
+    public void submitList(List<InventoryItem> newItems) {
+        differ.submitList(newItems);
     }
 
     @NonNull
@@ -34,7 +60,7 @@ public class InventoryAdapter extends RecyclerView.Adapter<InventoryAdapter.View
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        InventoryItem item = items.get(position);
+        InventoryItem item = differ.getCurrentList().get(position);
 
         holder.name.setText(item.getName());
         holder.qty.setText("Qty: " + item.getQuantity());
@@ -48,15 +74,16 @@ public class InventoryAdapter extends RecyclerView.Adapter<InventoryAdapter.View
             holder.date.setText("Added: Unknown");
         }
 
-        // Traffic Light Logic:
-        if (item.getQuantity() <= 0) {
+        // Traffic Light Logic (forecast status: minStock or the reorder point, whichever is higher):
+        String status = StockStatus.current(item);
+        if (StockStatus.OUT.equals(status)) {
             // OUT OF STOCK (0 or less) -> RED
             holder.statusIndicator.setBackgroundColor(Color.RED);
-        } else if (item.getQuantity() > 0 && item.getQuantity() <= 5) {
-            // LOW STOCK (1 to 5) -> YELLOW
+        } else if (StockStatus.LOW.equals(status)) {
+            // LOW STOCK (1 to the reorder point) -> YELLOW
             holder.statusIndicator.setBackgroundColor(Color.parseColor("#FFC107"));
         } else {
-            // IN STOCK (Greater than 5) -> GREEN
+            // IN STOCK (Above the reorder point) -> GREEN
             holder.statusIndicator.setBackgroundColor(Color.parseColor("#4CAF50"));
         }
 
@@ -65,7 +92,7 @@ public class InventoryAdapter extends RecyclerView.Adapter<InventoryAdapter.View
     }
 
     @Override
-    public int getItemCount() { return items.size(); }
+    public int getItemCount() { return differ.getCurrentList().size(); }
 
     public static class ViewHolder extends RecyclerView.ViewHolder {
         TextView name, qty, date, tvPrice; // Added tvPrice here
@@ -23,10 +23,11 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.inventory.R;
 import com.example.inventory.model.InventoryItem;
+import com.example.inventory.repository.InventoryValuation;
 
 // NEW ZXING IMPORTS FOR BARCODE GENERATION
 import com.google.zxing.BarcodeFormat;
-import com.journeyapps.barcodescanner.BarcodeEncoder;
+import com.example.inventory.barcode.BarcodeBitmapCache;
 
 import java.io.IOException;
 import java.io.OutputStream;
@@ -162,7 +163,7 @@ public class ReportAdapter extends RecyclerView.Adapter<ReportAdapter.ViewHolder
         canvas.drawText("Total Asset Value:", leftMargin, startY, paint);
         paint.setColor(Color.rgb(56, 142, 60)); // Green
         paint.setFakeBoldText(true);
-        canvas.drawText("$" + String.format("%.2f", item.getPrice() * item.getQuantity()), valueMargin, startY, paint);
+        canvas.drawText("$" + String.format("%.2f", InventoryValuation.valueOf(item)), valueMargin, startY, paint);
 
         // Row 4: Date
         startY += 50;
@@ -184,9 +185,8 @@ public class ReportAdapter extends RecyclerView.Adapter<ReportAdapter.ViewHolder
         // 6. Generate and Draw Barcode Image onto the PDF
         if (item.getBarcode() != null && !item.getBarcode().isEmpty()) {
             try {
-                BarcodeEncoder barcodeEncoder = new BarcodeEncoder();
-                // Generate a 400x120 Bitmap image of the barcode
-                Bitmap bitmap = barcodeEncoder.encodeBitmap(item.getBarcode(), BarcodeFormat.CODE_128, 400, 120);
+                // 400x120 barcode image (cached, so sharing the same item twice doesn't re-encode)
+                Bitmap bitmap = BarcodeBitmapCache.get().get(item.getBarcode(), BarcodeFormat.CODE_128, 400, 120);
 
                 // Draw it horizontally centered below the info card
                 canvas.drawBitmap(bitmap, 97, 540, null);
@@ -0,0 +1,79 @@
+package com.example.inventory.adapter;
+
+import android.content.res.ColorStateList;
+import android.graphics.Color;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+import com.example.inventory.R;
+import com.example.inventory.model.RollupBucket;
+import java.text.SimpleDateFormat;
+import java.util.List;
+import java.util.Locale;
+
+/** History totals per day or per week; tapping a row drills into that period. */
+public class RollupAdapter extends RecyclerView.Adapter<RollupAdapter.ViewHolder> {
+
+    public interface OnBucketClickListener {
+        void onBucketClick(RollupBucket bucket);
+    }
+
+    private final List<RollupBucket> list;
+    private final OnBucketClickListener listener;
+    private boolean weekly = false;
+    private final SimpleDateFormat dayFormat = new SimpleDateFormat("EEE, MMM dd, yyyy", Locale.getDefault());
+
+    public RollupAdapter(List<RollupBucket> list, OnBucketClickListener listener) {
+        this.list = list;
+        this.listener = listener;
+    }
+
+    public void setWeekly(boolean weekly) { this.weekly = weekly; }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        // Same card as a single movement, so both levels of the history look alike
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_transaction, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        RollupBucket bucket = list.get(position);
+        String date = (bucket.getStart() != null) ? dayFormat.format(bucket.getStart()) : "N/A";
+        holder.tvName.setText(weekly ? holder.itemView.getContext().getString(R.string.label_week_of, date) : date);
+        holder.tvDate.setText(holder.itemView.getContext().getString(R.string.msg_rollup_line,
+                bucket.getInQty(), bucket.getOutQty(), bucket.getCount()));
+
+        // Net movement, colored like a single IN / OUT record
+        long net = bucket.getInQty() - bucket.getOutQty();
+        boolean out = net < 0;
+        holder.tvQty.setText((out ? "" : "+") + net);
+        holder.tvQty.setTextColor(Color.parseColor(out ? "#C62828" : "#2E7D32"));
+        holder.tvQty.setBackgroundTintList(ColorStateList.valueOf(Color.parseColor(out ? "#FFEBEE" : "#E8F5E9")));
+        holder.imgType.setColorFilter(Color.parseColor(out ? "#D32F2F" : "#43A047"));
+
+        holder.itemView.setOnClickListener(v -> listener.onBucketClick(bucket));
+    }
+
+    @Override
+    public int getItemCount() { return list.size(); }
+
+    public static class ViewHolder extends RecyclerView.ViewHolder {
+        TextView tvName, tvDate, tvQty;
+        ImageView imgType;
+
+        public ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            tvName = itemView.findViewById(R.id.tvTransName);
+            tvDate = itemView.findViewById(R.id.tvTransDate);
+            tvQty = itemView.findViewById(R.id.tvTransQty);
+            imgType = itemView.findViewById(R.id.imgTransType);
+        }
+    }
+}
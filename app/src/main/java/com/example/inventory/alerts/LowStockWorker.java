@@ -0,0 +1,267 @@
+package com.example.inventory.alerts;
+
+import android.Manifest;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.core.app.NotificationChannelCompat;
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+import androidx.core.content.ContextCompat;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.inventory.AlertsActivity;
+import com.example.inventory.R;
+import com.example.inventory.model.InventoryItem;
+import com.example.inventory.repository.StockForecast;
+import com.example.inventory.repository.StockStatus;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodic background check that notifies when items drop to LOW or OUT.
+ *
+ * A run only reads the items written since the previous run (StockStatus.changedSince on the
+ * server "updatedAt" stamp), so its cost follows the number of changed items, not the catalog size.
+ * Reads go through Firestore's persisted cache: offline the query is answered from disk, online
+ * only the changed documents are transferred. The status is evaluated on the device
+ * (StockStatus.compute with the decayed velocity) instead of trusting the stored field, which a
+ * batched stock-in may have written from a stale quantity.
+ *
+ * Each item is notified once per transition: the last status notified per item is kept in
+ * SharedPreferences, so overlapping reads and repeated runs stay quiet until it changes again.
+ */
+public class LowStockWorker extends Worker {
+
+    private static final String WORK_NAME = "low_stock_check";
+    private static final long INTERVAL_MINUTES = 30;
+
+    private static final String CHANNEL_ID = "stock_alerts";
+    private static final String GROUP_KEY = "com.example.inventory.STOCK_ALERTS";
+    private static final int ITEM_NOTIFICATION_ID = 1;   // Tagged with the item id
+    private static final int SUMMARY_NOTIFICATION_ID = 2;
+    private static final int MAX_SUMMARY_LINES = 5;
+
+    private static final String PREFS_CURSOR = "LowStockCursor";
+    private static final String PREFS_NOTIFIED = "LowStockNotified"; // itemId -> last notified status
+    private static final String KEY_SECONDS = "seconds";
+    private static final String KEY_NANOS = "nanos";
+    private static final String KEY_CAUGHT_UP = "caughtUp";
+
+    private static final int PAGE_SIZE = 200;
+    private static final int MAX_PAGES_PER_RUN = 10; // Anything beyond is picked up by the next run
+    // Writes in flight during the last read can land with a slightly older commit time. Only applied
+    // after a run that read everything, so a truncated run's next page always moves forward.
+    private static final long OVERLAP_MILLIS = 60 * 1000;
+    private static final long QUERY_TIMEOUT_SECONDS = 30;
+
+    public LowStockWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /** Schedules the check; keeps the existing schedule if it is already enqueued. */
+    public static void schedule(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresBatteryNotLow(true)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(
+                LowStockWorker.class, INTERVAL_MINUTES, TimeUnit.MINUTES)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    /** Stops the check and forgets its state (logout). */
+    public static void cancel(Context context) {
+        WorkManager.getInstance(context).cancelUniqueWork(WORK_NAME);
+        context.getSharedPreferences(PREFS_CURSOR, Context.MODE_PRIVATE).edit().clear().apply();
+        context.getSharedPreferences(PREFS_NOTIFIED, Context.MODE_PRIVATE).edit().clear().apply();
+        NotificationManagerCompat.from(context).cancelAll();
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        if (FirebaseAuth.getInstance().getCurrentUser() == null) return Result.success();
+        // Nothing read while notifications are off; the cursor stays put and the next run catches up
+        if (!canNotify(context)) return Result.success();
+
+        SharedPreferences cursorPrefs = context.getSharedPreferences(PREFS_CURSOR, Context.MODE_PRIVATE);
+        SharedPreferences notified = context.getSharedPreferences(PREFS_NOTIFIED, Context.MODE_PRIVATE);
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+
+        List<DocumentSnapshot> changed = new ArrayList<>();
+        Timestamp cursor;
+        boolean complete = true;
+        boolean caughtUp = true;
+        try {
+            if (!cursorPrefs.contains(KEY_SECONDS)) {
+                // First run: what needs restocking right now (indexed, bounded by the alert count)
+                cursor = Timestamp.now();
+                QuerySnapshot alerts = await(StockStatus.alerts(db));
+                changed.addAll(alerts.getDocuments());
+                complete = !alerts.getMetadata().isFromCache();
+            } else {
+                cursor = new Timestamp(cursorPrefs.getLong(KEY_SECONDS, 0), cursorPrefs.getInt(KEY_NANOS, 0));
+                Timestamp from = cursorPrefs.getBoolean(KEY_CAUGHT_UP, true) ? minus(cursor, OVERLAP_MILLIS) : cursor;
+                Query query = StockStatus.changedSince(db, from).limit(PAGE_SIZE);
+                caughtUp = false;
+                for (int page = 0; page < MAX_PAGES_PER_RUN; page++) {
+                    QuerySnapshot snapshot = await(query);
+                    List<DocumentSnapshot> docs = snapshot.getDocuments();
+                    changed.addAll(docs);
+                    // Cached results may miss server changes; evaluate them but don't move past them
+                    if (snapshot.getMetadata().isFromCache()) complete = false;
+                    if (docs.size() < PAGE_SIZE) {
+                        caughtUp = true;
+                        break;
+                    }
+                    query = query.startAfter(docs.get(docs.size() - 1));
+                }
+                for (DocumentSnapshot doc : changed) {
+                    Timestamp updatedAt = doc.getTimestamp(StockStatus.FIELD_UPDATED_AT);
+                    if (updatedAt != null && updatedAt.compareTo(cursor) > 0) cursor = updatedAt;
+                }
+            }
+        } catch (Exception e) {
+            return Result.retry();
+        }
+
+        List<InventoryItem> newAlerts = evaluate(context, changed, notified);
+        if (!newAlerts.isEmpty()) postNotifications(context, newAlerts);
+
+        if (complete) {
+            cursorPrefs.edit()
+                    .putLong(KEY_SECONDS, cursor.getSeconds())
+                    .putInt(KEY_NANOS, cursor.getNanoseconds())
+                    .putBoolean(KEY_CAUGHT_UP, caughtUp)
+                    .apply();
+        }
+        return Result.success();
+    }
+
+    /** Records status transitions; returns the items that just became LOW or OUT. */
+    private static List<InventoryItem> evaluate(Context context, List<DocumentSnapshot> docs, SharedPreferences notified) {
+        NotificationManagerCompat manager = NotificationManagerCompat.from(context);
+        SharedPreferences.Editor editor = notified.edit();
+        List<InventoryItem> newAlerts = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        for (DocumentSnapshot doc : docs) {
+            InventoryItem item = doc.toObject(InventoryItem.class);
+            if (item == null) continue;
+            item.setId(doc.getId());
+
+            String status = StockStatus.compute(item, now);
+            String previous = notified.getString(item.getId(), StockStatus.OK);
+            if (status.equals(previous)) continue;
+
+            if (StockStatus.OK.equals(status)) {
+                // Restocked: drop its notification so a later drop alerts again
+                editor.remove(item.getId());
+                manager.cancel(item.getId(), ITEM_NOTIFICATION_ID);
+            } else {
+                editor.putString(item.getId(), status);
+                // OUT -> LOW is a partial restock: remembered, but not worth a notification
+                if (StockStatus.LOW.equals(status) && StockStatus.OUT.equals(previous)) continue;
+                item.setStockStatus(status);
+                newAlerts.add(item);
+            }
+        }
+        editor.apply();
+        return newAlerts;
+    }
+
+    private static void postNotifications(Context context, List<InventoryItem> newAlerts) {
+        if (!canNotify(context)) return;
+        NotificationManagerCompat manager = NotificationManagerCompat.from(context);
+        manager.createNotificationChannel(new NotificationChannelCompat.Builder(
+                CHANNEL_ID, NotificationManagerCompat.IMPORTANCE_DEFAULT)
+                .setName(context.getString(R.string.notif_channel_stock_alerts))
+                .setDescription(context.getString(R.string.notif_channel_stock_alerts_desc))
+                .build());
+
+        Intent intent = new Intent(context, AlertsActivity.class);
+        intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        PendingIntent openAlerts = PendingIntent.getActivity(context, 0, intent,
+                PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT);
+        long now = System.currentTimeMillis();
+
+        // Only the first few get their own notification (Android drops bursts past its per-app
+        // limits); the summary counts the rest
+        NotificationCompat.InboxStyle inbox = new NotificationCompat.InboxStyle();
+        int shown = Math.min(newAlerts.size(), MAX_SUMMARY_LINES);
+        for (int i = 0; i < shown; i++) {
+            InventoryItem item = newAlerts.get(i);
+            String text = StockStatus.OUT.equals(item.getStockStatus())
+                    ? context.getString(R.string.notif_item_out)
+                    : context.getString(R.string.notif_item_low, item.getQuantity(),
+                            StockForecast.reorderPoint(item, now));
+
+            manager.notify(item.getId(), ITEM_NOTIFICATION_ID, new NotificationCompat.Builder(context, CHANNEL_ID)
+                    .setSmallIcon(R.drawable.ic_stat_stock_alert)
+                    .setContentTitle(item.getName())
+                    .setContentText(text)
+                    .setContentIntent(openAlerts)
+                    .setAutoCancel(true)
+                    .setGroup(GROUP_KEY)
+                    .build());
+            inbox.addLine(context.getString(R.string.notif_summary_line, item.getName(), text));
+        }
+        if (newAlerts.size() > shown) {
+            inbox.setSummaryText(context.getString(R.string.notif_summary_more, newAlerts.size() - shown));
+        }
+
+        String title = context.getString(R.string.notif_summary_title, newAlerts.size());
+        manager.notify(SUMMARY_NOTIFICATION_ID, new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_stat_stock_alert)
+                .setContentTitle(title)
+                .setContentText(context.getString(R.string.title_stock_alerts))
+                .setStyle(inbox.setBigContentTitle(title))
+                .setContentIntent(openAlerts)
+                .setAutoCancel(true)
+                .setGroup(GROUP_KEY)
+                .setGroupSummary(true)
+                .build());
+    }
+
+    private static boolean canNotify(Context context) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && ContextCompat.checkSelfPermission(context, Manifest.permission.POST_NOTIFICATIONS)
+                != PackageManager.PERMISSION_GRANTED) {
+            return false;
+        }
+        return NotificationManagerCompat.from(context).areNotificationsEnabled();
+    }
+
+    private static QuerySnapshot await(Query query) throws Exception {
+        // Default source: the server when reachable, the persisted cache otherwise
+        return Tasks.await(query.get(), QUERY_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private static Timestamp minus(Timestamp timestamp, long millis) {
+        long nanos = timestamp.getSeconds() * 1_000_000_000L + timestamp.getNanoseconds() - millis * 1_000_000L;
+        return new Timestamp(Math.floorDiv(nanos, 1_000_000_000L), (int) Math.floorMod(nanos, 1_000_000_000L));
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.inventory.barcode;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.util.LruCache;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+
+/**
+ * Process-wide barcode bitmaps.
+ *
+ * {@link #get} returns a cached bitmap keyed by (text, format, width, height) from a
+ * size-bounded LRU, so the detail screen's snapshot ticks become lookups. Text that is still
+ * being typed goes through {@link #peekOrRender}, which never adds to the cache, so partial
+ * barcodes can't evict the list and report entries. Cached bitmaps are shared: callers must not
+ * modify or recycle them.
+ * (PDF exports don't use bitmaps at all, see BarcodeVectorRenderer.)
+ *
+ * One writer instance and one row buffer are reused for every encode.
+ */
+public final class BarcodeBitmapCache {
+
+    private static final BarcodeBitmapCache INSTANCE = new BarcodeBitmapCache();
+
+    private static final class Key {
+        final String text;
+        final BarcodeFormat format;
+        final int width;
+        final int height;
+
+        Key(String text, BarcodeFormat format, int width, int height) {
+            this.text = text;
+            this.format = format;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return width == other.width && height == other.height
+                    && format == other.format && text.equals(other.text);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = text.hashCode();
+            result = 31 * result + format.hashCode();
+            result = 31 * result + width;
+            return 31 * result + height;
+        }
+    }
+
+    private final LruCache<Key, Bitmap> cache;
+    private final MultiFormatWriter writer = new MultiFormatWriter();
+    private int[] rowBuffer = new int[0];
+
+    private BarcodeBitmapCache() {
+        // 1/32 of the heap: a dozen or so 600x200 detail barcodes plus many small ones
+        int maxBytes = (int) Math.min(Runtime.getRuntime().maxMemory() / 32, Integer.MAX_VALUE);
+        cache = new LruCache<Key, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(Key key, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+        };
+    }
+
+    public static BarcodeBitmapCache get() {
+        return INSTANCE;
+    }
+
+    /** Shared, cached bitmap. Don't recycle or draw into it. */
+    public Bitmap get(String text, BarcodeFormat format, int width, int height) throws WriterException {
+        Key key = new Key(text, format, width, height);
+        Bitmap bitmap = cache.get(key);
+        if (bitmap == null) {
+            bitmap = render(text, format, width, height);
+            cache.put(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    /** The cached bitmap if there is one, otherwise a fresh one that is not cached (for transient input). */
+    public Bitmap peekOrRender(String text, BarcodeFormat format, int width, int height) throws WriterException {
+        Bitmap bitmap = cache.get(new Key(text, format, width, height));
+        return (bitmap != null) ? bitmap : render(text, format, width, height);
+    }
+
+    private synchronized Bitmap render(String text, BarcodeFormat format, int width, int height)
+            throws WriterException {
+        BitMatrix matrix = writer.encode(text, format, width, height);
+        int w = matrix.getWidth();
+        int h = matrix.getHeight();
+
+        Bitmap bitmap = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+
+        if (rowBuffer.length < w) rowBuffer = new int[w];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                rowBuffer[x] = matrix.get(x, y) ? Color.BLACK : Color.WHITE;
+            }
+            bitmap.setPixels(rowBuffer, 0, w, 0, y, w, 1);
+        }
+        return bitmap;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.inventory.barcode;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+
+/**
+ * Draws a barcode as filled rectangles instead of a bitmap.
+ * The code is encoded at its natural module size and each horizontal run of dark modules
+ * becomes one rectangle (identical consecutive rows are merged too), so a CODE_128 row in a
+ * PDF is a few dozen vector bars: sharp at any zoom, tiny in the file, and no bitmap allocated.
+ */
+public final class BarcodeVectorRenderer {
+
+    /** Receives the bars in the caller's coordinate space (top-left origin). */
+    public interface RectSink {
+        void fillRect(float left, float top, float right, float bottom);
+    }
+
+    private final MultiFormatWriter writer = new MultiFormatWriter();
+
+    /** Scales the code to fill the given box. Not thread-safe; use one renderer per export. */
+    public void draw(String text, BarcodeFormat format, float left, float top, float width, float height,
+                     RectSink sink) throws WriterException {
+        // 0 x 0 asks for the minimal matrix: one row per module row (a single row for 1D codes)
+        BitMatrix matrix = writer.encode(text, format, 0, 0);
+        int columns = matrix.getWidth();
+        int rows = matrix.getHeight();
+        float moduleWidth = width / columns;
+        float moduleHeight = height / rows;
+
+        int y = 0;
+        while (y < rows) {
+            // Collapse following rows that are identical to this one into one band
+            int bandEnd = y + 1;
+            while (bandEnd < rows && sameRow(matrix, y, bandEnd)) bandEnd++;
+
+            float bandTop = top + y * moduleHeight;
+            float bandBottom = top + bandEnd * moduleHeight;
+            int x = 0;
+            while (x < columns) {
+                if (!matrix.get(x, y)) {
+                    x++;
+                    continue;
+                }
+                int runStart = x;
+                while (x < columns && matrix.get(x, y)) x++;
+                sink.fillRect(left + runStart * moduleWidth, bandTop, left + x * moduleWidth, bandBottom);
+            }
+            y = bandEnd;
+        }
+    }
+
+    private static boolean sameRow(BitMatrix matrix, int a, int b) {
+        for (int x = 0; x < matrix.getWidth(); x++) {
+            if (matrix.get(x, a) != matrix.get(x, b)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.inventory.export;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * RFC 4180 CSV written straight to a stream: fields containing a comma, quote, CR or LF
+ * (or leading/trailing spaces) are quoted with embedded quotes doubled, records end in CRLF.
+ * Rows go through a buffered UTF-8 writer, optionally gzip-compressed, so memory use does
+ * not depend on the number of rows.
+ */
+public class CsvWriter implements Closeable {
+
+    /** One output column: header text and how to read it from a row. */
+    public static class Column<T> {
+        public final String header;
+        private final Extractor<T> extractor;
+
+        public Column(String header, Extractor<T> extractor) {
+            this.header = header;
+            this.extractor = extractor;
+        }
+
+        public String valueOf(T row) {
+            return extractor.extract(row);
+        }
+    }
+
+    public interface Extractor<T> {
+        String extract(T row);
+    }
+
+    private static final String CRLF = "\r\n";
+
+    private final Writer writer;
+    private final GZIPOutputStream gzip;
+
+    public CsvWriter(OutputStream out, boolean compress) throws IOException {
+        gzip = compress ? new GZIPOutputStream(out, 64 * 1024) : null;
+        writer = new BufferedWriter(new OutputStreamWriter(compress ? gzip : out, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    public <T> void writeHeader(List<Column<T>> columns) throws IOException {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) writer.write(',');
+            writeField(columns.get(i).header);
+        }
+        writer.write(CRLF);
+    }
+
+    public <T> void writeRow(List<Column<T>> columns, T row) throws IOException {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) writer.write(',');
+            writeField(columns.get(i).valueOf(row));
+        }
+        writer.write(CRLF);
+    }
+
+    /** Flushes and finishes the gzip trailer without closing the underlying stream. */
+    public void finish() throws IOException {
+        writer.flush();
+        if (gzip != null) gzip.finish();
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+    }
+
+    private void writeField(String value) throws IOException {
+        if (value == null || value.isEmpty()) return;
+        if (!needsQuotes(value)) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') writer.write('"');
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    private static boolean needsQuotes(String value) {
+        if (value.charAt(0) == ' ' || value.charAt(value.length() - 1) == ' ') return true;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\r' || c == '\n') return true;
+        }
+        return false;
+    }
+}
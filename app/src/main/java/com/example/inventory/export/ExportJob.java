@@ -0,0 +1,133 @@
+package com.example.inventory.export;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.MediaStore;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs a file export on a background thread, writing straight into Downloads
+ * (MediaStore on Q+, the public directory before that). The writer reports progress and
+ * polls for cancellation; a cancelled or failed export leaves no partial file behind.
+ * Listener callbacks arrive on the main thread.
+ */
+public class ExportJob {
+
+    public interface Writer {
+        void write(OutputStream out, Progress progress) throws Exception;
+    }
+
+    public interface Listener {
+        void onProgress(int done, int total);
+        void onFinished(String fileName);
+        void onCancelled();
+        void onFailed(Exception e);
+    }
+
+    /** Handed to the writer: progress reporting and cancellation checks. */
+    public class Progress {
+        private long lastPost = 0;
+
+        /** Throttled to a few updates per second; {@code total} <= 0 means unknown. */
+        public void update(int done, int total) {
+            long now = System.currentTimeMillis();
+            if ((total <= 0 || done < total) && now - lastPost < 150) return;
+            lastPost = now;
+            main.post(() -> { if (!cancelled.get()) listener.onProgress(done, total); });
+        }
+
+        /** Call between rows/pages; aborts the export if the user cancelled. */
+        public void checkCancelled() {
+            if (cancelled.get()) throw new CancellationException();
+        }
+    }
+
+    // Exports are serialized so two big exports don't compete for memory
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private final Context context;
+    private final String fileName;
+    private final String mimeType;
+    private final Writer writer;
+    private final Listener listener;
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+    private ExportJob(Context context, String fileName, String mimeType, Writer writer, Listener listener) {
+        this.context = context.getApplicationContext();
+        this.fileName = fileName;
+        this.mimeType = mimeType;
+        this.writer = writer;
+        this.listener = listener;
+    }
+
+    public static ExportJob start(Context context, String fileName, String mimeType, Writer writer, Listener listener) {
+        ExportJob job = new ExportJob(context, fileName, mimeType, writer, listener);
+        EXECUTOR.execute(job::run);
+        return job;
+    }
+
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    private void run() {
+        ContentResolver resolver = context.getContentResolver();
+        Uri uri = null;
+        File file = null;
+        try {
+            OutputStream stream;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                ContentValues values = new ContentValues();
+                values.put(MediaStore.MediaColumns.DISPLAY_NAME, fileName);
+                values.put(MediaStore.MediaColumns.MIME_TYPE, mimeType);
+                values.put(MediaStore.MediaColumns.RELATIVE_PATH, Environment.DIRECTORY_DOWNLOADS);
+                // Hidden from other apps until it is complete
+                values.put(MediaStore.MediaColumns.IS_PENDING, 1);
+                uri = resolver.insert(MediaStore.Downloads.EXTERNAL_CONTENT_URI, values);
+                if (uri == null) throw new IOException("Failed to create file.");
+                stream = resolver.openOutputStream(uri);
+                if (stream == null) throw new IOException("Failed to create file.");
+            } else {
+                File dir = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS);
+                if (!dir.exists()) dir.mkdirs();
+                file = new File(dir, fileName);
+                stream = new FileOutputStream(file);
+            }
+
+            try (OutputStream out = new BufferedOutputStream(stream, 64 * 1024)) {
+                writer.write(out, new Progress());
+            }
+
+            if (uri != null) {
+                ContentValues done = new ContentValues();
+                done.put(MediaStore.MediaColumns.IS_PENDING, 0);
+                resolver.update(uri, done, null, null);
+            }
+            main.post(() -> listener.onFinished(fileName));
+        } catch (Exception e) {
+            if (uri != null) resolver.delete(uri, null, null);
+            if (file != null) file.delete();
+            if (e instanceof CancellationException || cancelled.get()) {
+                main.post(listener::onCancelled);
+            } else {
+                main.post(() -> listener.onFailed(e));
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.inventory.export;
+
+import android.app.Activity;
+import android.view.View;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AlertDialog;
+
+import com.example.inventory.R;
+
+/**
+ * Starts an ExportJob behind a non-blocking progress dialog with a Cancel button,
+ * and reports the outcome with a Toast.
+ */
+public final class ExportProgressDialog {
+
+    private ExportProgressDialog() {}
+
+    public static ExportJob run(Activity activity, String fileName, String mimeType, ExportJob.Writer writer) {
+        View view = activity.getLayoutInflater().inflate(R.layout.dialog_export_progress, null);
+        ProgressBar progressBar = view.findViewById(R.id.progressExport);
+        TextView tvProgress = view.findViewById(R.id.tvExportProgress);
+
+        final ExportJob[] job = new ExportJob[1];
+        AlertDialog dialog = new AlertDialog.Builder(activity)
+                .setTitle(activity.getString(R.string.title_exporting))
+                .setView(view)
+                .setCancelable(false)
+                .setNegativeButton(activity.getString(R.string.dialog_btn_cancel), (d, which) -> job[0].cancel())
+                .show();
+
+        job[0] = ExportJob.start(activity, fileName, mimeType, writer, new ExportJob.Listener() {
+            @Override
+            public void onProgress(int done, int total) {
+                if (total <= 0) {
+                    // Total not known (e.g. counted offline): keep spinning, show the rows written
+                    progressBar.setIndeterminate(true);
+                    tvProgress.setText(activity.getString(R.string.msg_export_progress_unknown, done));
+                    return;
+                }
+                progressBar.setIndeterminate(false);
+                progressBar.setMax(total);
+                progressBar.setProgress(done);
+                tvProgress.setText(activity.getString(R.string.msg_export_progress, done, total));
+            }
+
+            @Override
+            public void onFinished(String name) {
+                dismiss(activity, dialog);
+                Toast.makeText(activity, activity.getString(R.string.msg_export_saved, name), Toast.LENGTH_LONG).show();
+            }
+
+            @Override
+            public void onCancelled() {
+                dismiss(activity, dialog);
+                Toast.makeText(activity, activity.getString(R.string.msg_export_cancelled), Toast.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                dismiss(activity, dialog);
+                Toast.makeText(activity, activity.getString(R.string.msg_error_prefix, e.getMessage()), Toast.LENGTH_LONG).show();
+            }
+        });
+        return job[0];
+    }
+
+    private static void dismiss(Activity activity, AlertDialog dialog) {
+        if (!activity.isFinishing() && !activity.isDestroyed() && dialog.isShowing()) dialog.dismiss();
+    }
+}
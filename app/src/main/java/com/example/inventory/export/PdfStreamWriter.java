@@ -0,0 +1,304 @@
+package com.example.inventory.export;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Minimal PDF 1.4 writer that streams each page to the output as soon as it is finished.
+ * Unlike android.graphics.pdf.PdfDocument (which keeps every page until writeTo), peak memory
+ * is one page's content plus a few numbers per object for the xref table.
+ *
+ * Drawing mirrors the Canvas calls the exports already used: top-left origin, baseline text,
+ * colour / size / bold taken from the Paint. Latin-1 text uses the built-in Helvetica fonts
+ * (WinAnsi). Anything else (CJK, Cyrillic, Arabic, ...) is drawn through Android's own text stack,
+ * with its font fallback and shaping, the same way PdfDocument's Canvas did, and embedded as a
+ * high-resolution stencil mask painted in the text colour. Embedding the system fonts themselves
+ * isn't an option: the fallback fonts are multi-megabyte collections with no subsetter at hand.
+ */
+public class PdfStreamWriter implements Closeable {
+
+    public static final int A4_WIDTH = 595;
+    public static final int A4_HEIGHT = 842;
+
+    // Fixed object numbers; pages, contents and images follow
+    private static final int CATALOG = 1;
+    private static final int PAGES = 2;
+    private static final int FONT_REGULAR = 3;
+    private static final int FONT_BOLD = 4;
+
+    private static final Charset LATIN_1 = Charset.forName("ISO-8859-1");
+    // Device pixels per PDF point for rasterized text (~288 dpi)
+    private static final int TEXT_RASTER_SCALE = 4;
+
+    private final CountingOutputStream out;
+    private final int pageWidth;
+    private final int pageHeight;
+
+    private final List<Long> offsets = new ArrayList<>(); // index = object number - 1
+    private final List<Integer> pageObjects = new ArrayList<>();
+    private int nextObject = FONT_BOLD + 1;
+
+    private ByteArrayOutputStream content;
+    private final List<Integer> pageImages = new ArrayList<>();
+    private final List<TextMask> pageMasks = new ArrayList<>(); // Written with the page
+    private int lastColor = 0; // PDF default fill colour is black
+    private boolean finished = false;
+
+    public PdfStreamWriter(OutputStream output) throws IOException {
+        this(output, A4_WIDTH, A4_HEIGHT);
+    }
+
+    public PdfStreamWriter(OutputStream output, int pageWidth, int pageHeight) throws IOException {
+        this.out = new CountingOutputStream(output);
+        this.pageWidth = pageWidth;
+        this.pageHeight = pageHeight;
+
+        write("%PDF-1.4\n%\u00e2\u00e3\u00cf\u00d3\n"); // Binary marker
+        writeObject(FONT_REGULAR, "<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica /Encoding /WinAnsiEncoding >>");
+        writeObject(FONT_BOLD, "<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica-Bold /Encoding /WinAnsiEncoding >>");
+    }
+
+    public void startPage() {
+        if (content != null) throw new IllegalStateException("Previous page not finished");
+        content = new ByteArrayOutputStream(16 * 1024);
+        pageImages.clear();
+        lastColor = Color.BLACK;
+    }
+
+    /** Writes the current page's content and page object, then forgets them. */
+    public void finishPage() throws IOException {
+        if (content == null) throw new IllegalStateException("No page started");
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(content.size() / 3 + 64);
+        DeflaterOutputStream deflater = new DeflaterOutputStream(compressed);
+        content.writeTo(deflater);
+        deflater.close();
+        content = null;
+
+        for (TextMask mask : pageMasks) {
+            beginObject(mask.object);
+            write("<< /Type /XObject /Subtype /Image /Width " + mask.width + " /Height " + mask.height
+                    + " /ImageMask true /BitsPerComponent 1 /Filter /FlateDecode /Length " + mask.data.length
+                    + " >>\nstream\n");
+            out.write(mask.data);
+            write("\nendstream\nendobj\n");
+        }
+        pageMasks.clear();
+
+        int contentObject = nextObject++;
+        beginObject(contentObject);
+        write("<< /Length " + compressed.size() + " /Filter /FlateDecode >>\nstream\n");
+        compressed.writeTo(out);
+        write("\nendstream\nendobj\n");
+
+        StringBuilder images = new StringBuilder();
+        for (int i = 0; i < pageImages.size(); i++) {
+            images.append(" /Im").append(i).append(' ').append(pageImages.get(i)).append(" 0 R");
+        }
+        int pageObject = nextObject++;
+        writeObject(pageObject, "<< /Type /Page /Parent " + PAGES + " 0 R"
+                + " /MediaBox [0 0 " + pageWidth + " " + pageHeight + "]"
+                + " /Resources << /Font << /F1 " + FONT_REGULAR + " 0 R /F2 " + FONT_BOLD + " 0 R >>"
+                + (images.length() > 0 ? " /XObject <<" + images + " >>" : "") + " >>"
+                + " /Contents " + contentObject + " 0 R >>");
+        pageObjects.add(pageObject);
+        pageImages.clear();
+    }
+
+    public void drawRect(float left, float top, float right, float bottom, Paint paint) {
+        setFill(paint.getColor());
+        append(fmt(left) + " " + fmt(pageHeight - bottom) + " " + fmt(right - left) + " " + fmt(bottom - top) + " re f\n");
+    }
+
+    public void drawText(String text, float x, float baselineY, Paint paint) {
+        if (text == null || text.isEmpty()) return;
+        setFill(paint.getColor());
+        if (!isLatin1(text)) {
+            drawTextMask(text, x, baselineY, paint);
+            return;
+        }
+        append("BT /" + (paint.isFakeBoldText() ? "F2 " : "F1 ") + fmt(paint.getTextSize()) + " Tf "
+                + fmt(x) + " " + fmt(pageHeight - baselineY) + " Td (" + escape(text) + ") Tj ET\n");
+    }
+
+    // Renders the text with the Paint's typeface and fallback fonts into a 1-bit stencil
+    private void drawTextMask(String text, float x, float baselineY, Paint paint) {
+        Paint rasterPaint = new Paint(paint);
+        rasterPaint.setTextSize(paint.getTextSize() * TEXT_RASTER_SCALE);
+        rasterPaint.setColor(Color.BLACK);
+        rasterPaint.setAntiAlias(true);
+        Paint.FontMetrics metrics = rasterPaint.getFontMetrics();
+        int ascent = (int) Math.ceil(-metrics.top);
+        int width = (int) Math.ceil(rasterPaint.measureText(text)) + 1;
+        int height = ascent + (int) Math.ceil(metrics.bottom);
+        if (width <= 1 || height <= 0) return;
+
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ALPHA_8);
+        new Canvas(bitmap).drawText(text, 0, ascent, rasterPaint);
+        ByteBuffer alpha = ByteBuffer.allocate(bitmap.getRowBytes() * height);
+        bitmap.copyPixelsToBuffer(alpha);
+        int rowBytes = bitmap.getRowBytes();
+        bitmap.recycle();
+
+        // Stencil rows are byte-aligned, most significant bit first; 0 = paint (the default Decode)
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(width * height / 32 + 64);
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(compressed)) {
+            byte[] bits = new byte[(width + 7) / 8];
+            for (int y = 0; y < height; y++) {
+                Arrays.fill(bits, (byte) 0xFF);
+                for (int px = 0; px < width; px++) {
+                    if ((alpha.get(y * rowBytes + px) & 0xFF) >= 128) bits[px >> 3] &= ~(0x80 >> (px & 7));
+                }
+                deflater.write(bits);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // In-memory stream
+        }
+
+        TextMask mask = new TextMask(nextObject++, width, height, compressed.toByteArray());
+        pageMasks.add(mask);
+        String name = "Im" + pageImages.size();
+        pageImages.add(mask.object);
+        float scale = 1f / TEXT_RASTER_SCALE;
+        append("q " + fmt(width * scale) + " 0 0 " + fmt(height * scale) + " " + fmt(x) + " "
+                + fmt(pageHeight - baselineY - (height - ascent) * scale) + " cm /" + name + " Do Q\n");
+    }
+
+    /** Writes the page tree, catalog and xref table. The underlying stream is left open. */
+    public void finish() throws IOException {
+        if (finished) return;
+        if (content != null) finishPage();
+        finished = true;
+
+        StringBuilder kids = new StringBuilder();
+        for (int page : pageObjects) kids.append(page).append(" 0 R ");
+        writeObject(PAGES, "<< /Type /Pages /Kids [" + kids + "] /Count " + pageObjects.size() + " >>");
+        writeObject(CATALOG, "<< /Type /Catalog /Pages " + PAGES + " 0 R >>");
+
+        long xref = out.count;
+        int objectCount = nextObject - 1;
+        StringBuilder table = new StringBuilder("xref\n0 " + (objectCount + 1) + "\n0000000000 65535 f \n");
+        for (int i = 0; i < objectCount; i++) {
+            table.append(String.format(Locale.US, "%010d 00000 n \n", offsets.get(i)));
+            if (table.length() > 8192) {
+                write(table.toString());
+                table.setLength(0);
+            }
+        }
+        table.append("trailer\n<< /Size ").append(objectCount + 1).append(" /Root ").append(CATALOG)
+                .append(" 0 R >>\nstartxref\n").append(xref).append("\n%%EOF\n");
+        write(table.toString());
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+    }
+
+    // --- internals ---
+
+    private void setFill(int color) {
+        if (color == lastColor) return;
+        lastColor = color;
+        append(fmt(Color.red(color) / 255f) + " " + fmt(Color.green(color) / 255f) + " "
+                + fmt(Color.blue(color) / 255f) + " rg\n");
+    }
+
+    private void append(String operators) {
+        if (content == null) throw new IllegalStateException("No page started");
+        byte[] bytes = operators.getBytes(LATIN_1);
+        content.write(bytes, 0, bytes.length);
+    }
+
+    private void beginObject(int number) throws IOException {
+        while (offsets.size() < number) offsets.add(0L);
+        offsets.set(number - 1, out.count);
+        write(number + " 0 obj\n");
+    }
+
+    private void writeObject(int number, String body) throws IOException {
+        beginObject(number);
+        write(body + "\nendobj\n");
+    }
+
+    private void write(String s) throws IOException {
+        out.write(s.getBytes(LATIN_1));
+    }
+
+    // WinAnsi matches Latin-1 from 0xA0 up; 0x7F-0x9F hold different glyphs there
+    private static boolean isLatin1(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c > 255 || (c >= 0x7F && c < 0xA0)) return false;
+        }
+        return true;
+    }
+
+    private static String escape(String text) {
+        StringBuilder sb = new StringBuilder(text.length() + 8);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '(' || c == ')' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 32) {
+                sb.append(' ');
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static class TextMask {
+        final int object;
+        final int width;
+        final int height;
+        final byte[] data;
+
+        TextMask(int object, int width, int height, byte[] data) {
+            this.object = object;
+            this.width = width;
+            this.height = height;
+            this.data = data;
+        }
+    }
+
+    private static String fmt(float value) {
+        if (value == (int) value) return Integer.toString((int) value);
+        return String.format(Locale.US, "%.3f", value);
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        long count = 0;
+
+        CountingOutputStream(OutputStream out) { super(out); }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.inventory.importing;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming RFC 4180 reader: one record at a time, quoted fields may contain the delimiter,
+ * doubled quotes and line breaks. Works for CSV and TSV ({@link #detectDelimiter}).
+ * Only the current record is held in memory.
+ */
+public class CsvReader implements Closeable {
+
+    private final Reader reader;
+    private final char delimiter;
+    private final StringBuilder field = new StringBuilder();
+    private int pushedBack = -2; // -2 = nothing pushed back
+    private int recordNumber = 0;
+
+    /** {@code reader} should be buffered. */
+    public CsvReader(Reader reader, char delimiter) {
+        this.reader = reader;
+        this.delimiter = delimiter;
+    }
+
+    /** Tab if the header line has more tabs than commas, otherwise comma. */
+    public static char detectDelimiter(String headerLine) {
+        int tabs = 0, commas = 0;
+        for (int i = 0; i < headerLine.length(); i++) {
+            char c = headerLine.charAt(i);
+            if (c == '\t') tabs++;
+            else if (c == ',') commas++;
+        }
+        return tabs > commas ? '\t' : ',';
+    }
+
+    /** 1-based number of the record last returned by {@link #readRecord()}. */
+    public int getRecordNumber() { return recordNumber; }
+
+    /** Next record, or null at end of input. Blank lines are skipped. */
+    public List<String> readRecord() throws IOException {
+        List<String> record = new ArrayList<>();
+        field.setLength(0);
+        boolean inQuotes = false;
+        boolean sawAnything = false;
+
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                if (!sawAnything) return null;
+                record.add(field.toString());
+                break;
+            }
+            sawAnything = true;
+
+            if (inQuotes) {
+                if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        inQuotes = false;
+                        unread(next);
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                inQuotes = true;
+            } else if (c == delimiter) {
+                record.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n') {
+                if (c == '\r') {
+                    int next = read();
+                    if (next != '\n') unread(next);
+                }
+                if (record.isEmpty() && field.length() == 0) {
+                    sawAnything = false; // Blank line
+                    continue;
+                }
+                record.add(field.toString());
+                break;
+            } else {
+                field.append((char) c);
+            }
+        }
+        recordNumber++;
+        return record;
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != -2) {
+            int c = pushedBack;
+            pushedBack = -2;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private void unread(int c) {
+        pushedBack = c;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,477 @@
+package com.example.inventory.importing;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.OpenableColumns;
+
+import com.example.inventory.db.LocalDatabaseHelper;
+import com.example.inventory.model.Batch;
+import com.example.inventory.model.Transaction;
+import com.example.inventory.repository.DateAddedMigration;
+import com.example.inventory.repository.FifoBatches;
+import com.example.inventory.repository.InventoryRepository;
+import com.example.inventory.repository.InventoryStats;
+import com.example.inventory.repository.InventoryValuation;
+import com.example.inventory.repository.StockStatus;
+import com.example.inventory.repository.TransactionRollups;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Bulk item import from CSV/TSV (the same headers the CSV export writes).
+ *
+ * The file is parsed as a stream and cut into chunks of source rows. Each chunk is ONE WriteBatch
+ * of at most 500 operations: per row the item, its first FIFO batch and the history record, plus one
+ * stats write for the whole chunk and a marker in imports/{importId}/chunks. Up to MAX_IN_FLIGHT
+ * batches are committed concurrently. Offline, commits are only acknowledged once the device is
+ * back online, so if none completes within COMMIT_WAIT_MS the import stops with an
+ * {@link OfflineException}: what was written is queued locally and the rest resumes later.
+ *
+ * Because the marker commits atomically with its rows, an interrupted import is resumed by picking
+ * the same file again: chunks that already have a marker are skipped, and nothing is written twice.
+ * Rows whose barcode is already in the catalog or earlier in the file are skipped as duplicates.
+ */
+public class InventoryImporter {
+
+    public interface Listener {
+        void onProgress(long bytesRead, long totalBytes, int imported, int skipped);
+        void onFinished(Summary summary);
+        void onCancelled(Summary summary);
+        void onFailed(Exception e);
+    }
+
+    /** No commit was acknowledged in time; the chunks written so far sync when the device reconnects. */
+    public static class OfflineException extends IOException {
+        OfflineException() {
+            super("No connection. Rows written so far will sync when back online; import the same file again to finish.");
+        }
+    }
+
+    public static class Summary {
+        public int imported;
+        public int duplicates;
+        public int invalid;
+        public int alreadyImported; // Rows from chunks committed by an earlier, interrupted run
+        public final List<String> errors = new ArrayList<>();
+    }
+
+    // item + batch + history + 2 item rollups per row; stats + chunk marker + 2 rollup buckets per chunk
+    static final int ROWS_PER_CHUNK = (500 - 4) / 5;
+    private static final int MAX_IN_FLIGHT = 4;
+    private static final long COMMIT_WAIT_MS = 30000;
+    private static final int FINGERPRINT_BLOCK = 64 * 1024;
+    private static final int MAX_REPORTED_ERRORS = 20;
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private final Context context;
+    private final FirebaseFirestore db;
+    private final InventoryRepository repository;
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+    public InventoryImporter(Context context, FirebaseFirestore db, InventoryRepository repository) {
+        this.context = context.getApplicationContext();
+        this.db = db;
+        this.repository = repository;
+    }
+
+    public void start(Uri uri, Listener listener) {
+        EXECUTOR.execute(() -> run(uri, listener));
+    }
+
+    /** Stops after the chunks already in flight; the import can be resumed later. */
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    // Column positions found in the header row (-1 = absent)
+    private static class Columns {
+        int name = -1, category = -1, quantity = -1, price = -1, sale = -1, minStock = -1, dateAdded = -1, barcode = -1;
+    }
+
+    private static class Chunk {
+        final int index;
+        final WriteBatch batch;
+        final Map<String, InventoryStats.CategoryDelta> stats = new HashMap<>();
+        final TransactionRollups.Delta rollup = new TransactionRollups.Delta();
+        int rows = 0;
+
+        Chunk(int index, WriteBatch batch) {
+            this.index = index;
+            this.batch = batch;
+        }
+    }
+
+    private void run(Uri uri, Listener listener) {
+        Summary summary = new Summary();
+        Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+        AtomicInteger imported = new AtomicInteger();
+        AtomicReference<Exception> commitFailure = new AtomicReference<>();
+
+        try {
+            ContentResolver resolver = context.getContentResolver();
+            String fileName = "import";
+            long size = -1;
+            try (Cursor cursor = resolver.query(uri, null, null, null, null)) {
+                if (cursor != null && cursor.moveToFirst()) {
+                    int nameIndex = cursor.getColumnIndex(OpenableColumns.DISPLAY_NAME);
+                    int sizeIndex = cursor.getColumnIndex(OpenableColumns.SIZE);
+                    if (nameIndex >= 0 && !cursor.isNull(nameIndex)) fileName = cursor.getString(nameIndex);
+                    if (sizeIndex >= 0 && !cursor.isNull(sizeIndex)) size = cursor.getLong(sizeIndex);
+                }
+            }
+            final long totalBytes = size;
+
+            // Same content -> same import id -> resume
+            String importId = importId(resolver, uri, size);
+            DocumentReference importRef = db.collection("imports").document(importId);
+            Set<Integer> committedChunks = new HashSet<>();
+            for (DocumentSnapshot doc : Tasks.await(importRef.collection("chunks").get()).getDocuments()) {
+                committedChunks.add(Integer.parseInt(doc.getId()));
+            }
+
+            InputStream raw = resolver.openInputStream(uri);
+            if (raw == null) throw new IOException("Cannot open " + fileName);
+            CountingInputStream counting = new CountingInputStream(raw);
+            BufferedReader buffered = new BufferedReader(new InputStreamReader(counting, StandardCharsets.UTF_8), 64 * 1024);
+
+            buffered.mark(64 * 1024);
+            String headerLine = buffered.readLine();
+            buffered.reset();
+            if (headerLine == null) throw new IOException("The file is empty");
+
+            try (CsvReader csv = new CsvReader(buffered, CsvReader.detectDelimiter(headerLine))) {
+                Columns columns = mapHeader(csv.readRecord());
+                if (columns.name < 0) throw new IOException("The file needs a Name column");
+
+                String today = new SimpleDateFormat(DateAddedMigration.LEGACY_PATTERN, Locale.getDefault()).format(new Date());
+                Set<String> seenBarcodes = new HashSet<>();
+                Chunk chunk = null;
+                long lastProgress = 0;
+                List<String> record;
+
+                while ((record = csv.readRecord()) != null) {
+                    if (cancelled.get() || commitFailure.get() != null) break;
+
+                    int row = csv.getRecordNumber() - 2; // 0-based data row
+                    int chunkIndex = row / ROWS_PER_CHUNK;
+                    if (chunk != null && chunk.index != chunkIndex) {
+                        commit(chunk, importRef, inFlight, imported, commitFailure);
+                        chunk = null;
+                    }
+
+                    String barcode = field(record, columns.barcode);
+                    if (committedChunks.contains(chunkIndex)) {
+                        if (!barcode.isEmpty()) seenBarcodes.add(barcode);
+                        summary.alreadyImported++;
+                        continue;
+                    }
+
+                    Map<String, Object> item;
+                    try {
+                        item = parseItem(record, columns, today);
+                    } catch (IllegalArgumentException e) {
+                        summary.invalid++;
+                        if (summary.errors.size() < MAX_REPORTED_ERRORS) {
+                            summary.errors.add("Row " + csv.getRecordNumber() + ": " + e.getMessage());
+                        }
+                        continue;
+                    }
+
+                    if (!barcode.isEmpty()) {
+                        if (!seenBarcodes.add(barcode) || repository.findByBarcode(barcode) != null) {
+                            summary.duplicates++;
+                            continue;
+                        }
+                    }
+
+                    if (chunk == null) chunk = new Chunk(chunkIndex, db.batch());
+                    addRow(chunk, item);
+
+                    long now = System.currentTimeMillis();
+                    if (now - lastProgress > 200) {
+                        lastProgress = now;
+                        long bytes = counting.count;
+                        int skipped = summary.duplicates + summary.invalid;
+                        int done = imported.get();
+                        main.post(() -> listener.onProgress(bytes, totalBytes, done, skipped));
+                    }
+                }
+
+                if (chunk != null && !cancelled.get() && commitFailure.get() == null) {
+                    commit(chunk, importRef, inFlight, imported, commitFailure);
+                }
+            }
+
+            // Wait for everything still in flight
+            if (!awaitSlots(inFlight, MAX_IN_FLIGHT) && !cancelled.get()) {
+                commitFailure.compareAndSet(null, new OfflineException());
+            }
+            summary.imported = imported.get();
+            if (commitFailure.get() != null) throw commitFailure.get();
+
+            if (cancelled.get()) {
+                main.post(() -> listener.onCancelled(summary));
+                return;
+            }
+
+            Map<String, Object> done = new HashMap<>();
+            done.put("fileName", fileName);
+            done.put("completedAt", new Date());
+            importRef.set(done);
+
+            LocalDatabaseHelper.get(context).logAction("IMPORT", fileName + " (" + summary.imported + " items)");
+
+            main.post(() -> listener.onFinished(summary));
+        } catch (Exception e) {
+            main.post(() -> listener.onFailed(e));
+        }
+    }
+
+    private void addRow(Chunk chunk, Map<String, Object> item) {
+        DocumentReference itemRef = db.collection("inventory").document();
+        String name = (String) item.get("name");
+        int qty = (Integer) item.get("quantity");
+        double price = (Double) item.get("price");
+
+        if (qty > 0) {
+            DocumentReference batchRef = FifoBatches.batches(db, itemRef.getId()).document();
+            chunk.batch.set(batchRef, new Batch(qty, price));
+            item.put(FifoBatches.FIELD_HEAD, batchRef.getId());
+        }
+        chunk.batch.set(itemRef, item);
+        chunk.batch.set(db.collection("transactions").document(), new Transaction(itemRef.getId(), "New: " + name,
+                (String) item.get("barcode"), "IN", qty, qty, FirebaseAuth.getInstance().getUid()));
+
+        String category = InventoryStats.categoryKey((String) item.get("category"));
+        InventoryStats.CategoryDelta delta = chunk.stats.get(category);
+        if (delta == null) {
+            delta = new InventoryStats.CategoryDelta();
+            chunk.stats.put(category, delta);
+        }
+        delta.quantity += qty;
+        delta.value += qty * price;
+        delta.itemCount++;
+        chunk.rollup.add(itemRef.getId(), name, (String) item.get("category"), "IN", qty);
+        chunk.rows++;
+    }
+
+    private void commit(Chunk chunk, DocumentReference importRef, Semaphore inFlight,
+                        AtomicInteger imported, AtomicReference<Exception> failure) throws InterruptedException {
+        if (chunk.rows == 0) return;
+        InventoryStats.applyDeltas(chunk.batch, db, chunk.stats);
+        TransactionRollups.apply(chunk.batch, db, new Date(), chunk.rollup);
+
+        Map<String, Object> marker = new HashMap<>();
+        marker.put("rows", chunk.rows);
+        marker.put("committedAt", FieldValue.serverTimestamp());
+        chunk.batch.set(importRef.collection("chunks").document(String.valueOf(chunk.index)), marker);
+
+        // Bounded concurrency: blocks the import thread while MAX_IN_FLIGHT commits are pending
+        if (!awaitSlots(inFlight, 1)) {
+            // Not committed: a resumed import picks this chunk up again
+            if (!cancelled.get()) failure.compareAndSet(null, new OfflineException());
+            return;
+        }
+        final int rows = chunk.rows;
+        chunk.batch.commit().addOnCompleteListener(task -> {
+            if (task.isSuccessful()) {
+                imported.addAndGet(rows);
+            } else {
+                failure.compareAndSet(null, task.getException());
+            }
+            inFlight.release();
+        });
+    }
+
+    // False when cancelled, or when no commit completed for COMMIT_WAIT_MS (offline)
+    private boolean awaitSlots(Semaphore inFlight, int permits) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + COMMIT_WAIT_MS;
+        while (!inFlight.tryAcquire(permits, 1, TimeUnit.SECONDS)) {
+            if (cancelled.get() || System.currentTimeMillis() > deadline) return false;
+        }
+        return true;
+    }
+
+    // Same document layout AddItemActivity writes for a new item
+    private static Map<String, Object> parseItem(List<String> record, Columns columns, String today) {
+        String name = field(record, columns.name);
+        if (name.isEmpty()) throw new IllegalArgumentException("missing name");
+
+        int qty = parseInt(field(record, columns.quantity), 0, "quantity");
+        double price = parseDouble(field(record, columns.price), "price");
+        double sale = parseDouble(field(record, columns.sale), "sale");
+        int minStock = parseInt(field(record, columns.minStock), 5, "min stock");
+
+        String dateAdded = field(record, columns.dateAdded);
+        long dateAddedMillis = dateAdded.isEmpty() || "N/A".equals(dateAdded) ? 0 : DateAddedMigration.parseLegacyDate(dateAdded);
+        if (dateAddedMillis == 0) {
+            dateAdded = today;
+            dateAddedMillis = System.currentTimeMillis();
+        }
+
+        Map<String, Object> item = new HashMap<>();
+        item.put("name", name);
+        item.put("category", field(record, columns.category));
+        item.put("quantity", qty);
+        item.put("price", price);
+        item.put("sale", sale);
+        item.put("minStock", minStock);
+        item.put("dateAdded", dateAdded);
+        item.put("dateAddedMillis", dateAddedMillis);
+        item.put("barcode", field(record, columns.barcode));
+        item.put(InventoryValuation.FIELD_VALUE, qty * price);
+        item.put(FifoBatches.FIELD_INDEXED, true);
+        item.put(StockStatus.FIELD, StockStatus.of(qty, minStock));
+        item.put(StockStatus.FIELD_UPDATED_AT, FieldValue.serverTimestamp());
+        return item;
+    }
+
+    private static Columns mapHeader(List<String> header) {
+        Columns columns = new Columns();
+        if (header == null) return columns;
+        for (int i = 0; i < header.size(); i++) {
+            // Case, spaces, underscores and a UTF-8 BOM don't matter: "Min Stock" == "min_stock"
+            String key = header.get(i).replace("\uFEFF", "").replace(" ", "").replace("_", "").toLowerCase(Locale.US);
+            switch (key) {
+                case "name": columns.name = i; break;
+                case "category": columns.category = i; break;
+                case "quantity": case "qty": columns.quantity = i; break;
+                case "price": columns.price = i; break;
+                case "sale": columns.sale = i; break;
+                case "minstock": columns.minStock = i; break;
+                case "dateadded": columns.dateAdded = i; break;
+                case "barcode": columns.barcode = i; break;
+                default: break; // e.g. "Total Value" from an export is derived, not imported
+            }
+        }
+        return columns;
+    }
+
+    private static String field(List<String> record, int index) {
+        if (index < 0 || index >= record.size()) return "";
+        return record.get(index).trim();
+    }
+
+    private static int parseInt(String value, int fallback, String what) {
+        if (value.isEmpty()) return fallback;
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed < 0) throw new IllegalArgumentException(what + " is negative");
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid " + what + " '" + value + "'");
+        }
+    }
+
+    private static double parseDouble(String value, String what) {
+        if (value.isEmpty()) return 0.0;
+        try {
+            double parsed = Double.parseDouble(value.startsWith("$") ? value.substring(1) : value);
+            if (parsed < 0 || Double.isNaN(parsed) || Double.isInfinite(parsed)) {
+                throw new IllegalArgumentException("invalid " + what + " '" + value + "'");
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid " + what + " '" + value + "'");
+        }
+    }
+
+    /**
+     * SHA-1 of the size and the file's first and last FINGERPRINT_BLOCK bytes (all of it when it is
+     * small or its size is unknown), so a different file with the same name and size isn't mistaken
+     * for an interrupted import of this one.
+     */
+    private static String importId(ContentResolver resolver, Uri uri, long size) throws Exception {
+        MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+        sha1.update(String.valueOf(size).getBytes(StandardCharsets.UTF_8));
+        try (InputStream in = resolver.openInputStream(uri)) {
+            if (in == null) throw new IOException("Cannot open the file");
+            byte[] buffer = new byte[8192];
+            if (size < 0 || size <= 2L * FINGERPRINT_BLOCK) {
+                int n;
+                while ((n = in.read(buffer)) > 0) sha1.update(buffer, 0, n);
+            } else {
+                digestBytes(in, sha1, buffer, FINGERPRINT_BLOCK);
+                long toSkip = size - 2L * FINGERPRINT_BLOCK;
+                while (toSkip > 0) {
+                    long skipped = in.skip(toSkip);
+                    if (skipped <= 0) {
+                        // Some streams can't skip: read through instead
+                        if (in.read() < 0) break;
+                        skipped = 1;
+                    }
+                    toSkip -= skipped;
+                }
+                digestBytes(in, sha1, buffer, FINGERPRINT_BLOCK);
+            }
+        }
+        byte[] digest = sha1.digest();
+        StringBuilder hex = new StringBuilder();
+        for (int i = 0; i < 10; i++) hex.append(String.format(Locale.US, "%02x", digest[i]));
+        return hex.toString();
+    }
+
+    private static void digestBytes(InputStream in, MessageDigest digest, byte[] buffer, int count) throws IOException {
+        while (count > 0) {
+            int n = in.read(buffer, 0, Math.min(buffer.length, count));
+            if (n <= 0) return;
+            digest.update(buffer, 0, n);
+            count -= n;
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        volatile long count = 0;
+
+        CountingInputStream(InputStream in) { super(in); }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+}
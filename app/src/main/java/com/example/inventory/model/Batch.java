@@ -7,13 +7,18 @@ public class Batch {
     private int originalQty;
     private int remainingQty;
     private Date dateReceived;
+    private double unitCost; // Purchase price per unit at receipt
+    // False once depleted; stock-out only queries active batches
+    private boolean active;
 
     public Batch() {} // Firestore requires empty constructor
 
-    public Batch(int qty) {
+    public Batch(int qty, double unitCost) {
         this.originalQty = qty;
+        this.unitCost = unitCost;
         this.remainingQty = qty;
         this.dateReceived = new Date();
+        this.active = qty > 0;
     }
 
     public String getId() { return id; }
@@ -22,4 +27,7 @@ public class Batch {
     public int getRemainingQty() { return remainingQty; }
     public void setRemainingQty(int remainingQty) { this.remainingQty = remainingQty; }
     public Date getDateReceived() { return dateReceived; }
+    public double getUnitCost() { return unitCost; }
+    public boolean isActive() { return active; }
+    public void setActive(boolean active) { this.active = active; }
 }
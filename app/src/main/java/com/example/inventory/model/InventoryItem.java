@@ -1,5 +1,7 @@
 package com.example.inventory.model;
 
+import java.util.Map;
+
 public class InventoryItem {
     private String id;
     private String name;
@@ -9,7 +11,18 @@ public class InventoryItem {
     private double sale;     // NEW FIELD
     private int minStock;
     private String dateAdded;
+    private long dateAddedMillis; // Epoch key used for sorting/range filters ("dateAdded" is display only)
     private String barcode;
+    // FIFO running totals maintained by StockMovementEngine (null until the item is first valued)
+    private Double fifoValue;
+    private double cogsTotal;
+    private Map<String, Double> cogsByMonth;
+    private int fifoPendingOut;   // Units stocked out offline, not yet taken from batches
+    // Consumption forecast maintained by StockMovementEngine (see StockForecast)
+    private double velocity;      // EWMA of units/day as of velocityAt
+    private long velocityAt;
+    private Integer leadTimeDays; // Supplier lead time; null = StockForecast default
+    private String stockStatus;   // "OK" / "LOW" / "OUT", written with every quantity change (see StockStatus)
 
     public InventoryItem() {} // Empty constructor for Firestore
 
@@ -50,6 +63,33 @@ public class InventoryItem {
     public String getDateAdded() { return dateAdded; }
     public void setDateAdded(String dateAdded) { this.dateAdded = dateAdded; }
 
+    public long getDateAddedMillis() { return dateAddedMillis; }
+    public void setDateAddedMillis(long dateAddedMillis) { this.dateAddedMillis = dateAddedMillis; }
+
     public String getBarcode() { return barcode; }
     public void setBarcode(String barcode) { this.barcode = barcode; }
+
+    public Double getFifoValue() { return fifoValue; }
+    public void setFifoValue(Double fifoValue) { this.fifoValue = fifoValue; }
+
+    public int getFifoPendingOut() { return fifoPendingOut; }
+    public void setFifoPendingOut(int fifoPendingOut) { this.fifoPendingOut = fifoPendingOut; }
+
+    public double getCogsTotal() { return cogsTotal; }
+    public void setCogsTotal(double cogsTotal) { this.cogsTotal = cogsTotal; }
+
+    public Map<String, Double> getCogsByMonth() { return cogsByMonth; }
+    public void setCogsByMonth(Map<String, Double> cogsByMonth) { this.cogsByMonth = cogsByMonth; }
+
+    public double getVelocity() { return velocity; }
+    public void setVelocity(double velocity) { this.velocity = velocity; }
+
+    public long getVelocityAt() { return velocityAt; }
+    public void setVelocityAt(long velocityAt) { this.velocityAt = velocityAt; }
+
+    public Integer getLeadTimeDays() { return leadTimeDays; }
+    public void setLeadTimeDays(Integer leadTimeDays) { this.leadTimeDays = leadTimeDays; }
+
+    public String getStockStatus() { return stockStatus; }
+    public void setStockStatus(String stockStatus) { this.stockStatus = stockStatus; }
 }
\ No newline at end of file
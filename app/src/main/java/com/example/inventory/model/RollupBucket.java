@@ -0,0 +1,21 @@
+package com.example.inventory.model;
+
+import java.util.Date;
+import java.util.Map;
+
+/** One daily or weekly history rollup document (see TransactionRollups). */
+public class RollupBucket {
+    private Date start;
+    private long inQty;
+    private long outQty;
+    private long count;
+    private Map<String, Map<String, Long>> categories; // key -> {"in", "out"}
+
+    public RollupBucket() {}
+
+    public Date getStart() { return start; }
+    public long getInQty() { return inQty; }
+    public long getOutQty() { return outQty; }
+    public long getCount() { return count; }
+    public Map<String, Map<String, Long>> getCategories() { return categories; }
+}
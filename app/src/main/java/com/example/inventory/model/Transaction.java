@@ -3,10 +3,15 @@ package com.example.inventory.model;
 import java.util.Date;
 
 public class Transaction {
+    private String itemId;   // inventory document id; null on records written before it was tracked
     private String itemName;
     private String type; // "IN" or "OUT"
     private int quantityChanged;
     private Date timestamp;
+    private double cogs; // FIFO cost of the units taken out (OUT only)
+    private String barcode;
+    private String userId;          // Firebase Auth uid of whoever made the change
+    private Integer resultingQty;   // Stock level right after the movement (null on legacy records)
 
     public Transaction() {}
 
@@ -16,9 +21,24 @@ public class Transaction {
         this.quantityChanged = quantityChanged;
         this.timestamp = new Date();
     }
+
+    public Transaction(String itemId, String itemName, String barcode, String type,
+                       int quantityChanged, int resultingQty, String userId) {
+        this(itemName, type, quantityChanged);
+        this.itemId = itemId;
+        this.barcode = barcode;
+        this.resultingQty = resultingQty;
+        this.userId = userId;
+    }
     // Add Getters
     public String getItemName() { return itemName; }
     public String getType() { return type; }
     public int getQuantityChanged() { return quantityChanged; }
     public Date getTimestamp() { return timestamp; }
-}
\ No newline at end of file
+    public double getCogs() { return cogs; }
+    public void setCogs(double cogs) { this.cogs = cogs; }
+    public String getItemId() { return itemId; }
+    public String getBarcode() { return barcode; }
+    public String getUserId() { return userId; }
+    public Integer getResultingQty() { return resultingQty; }
+}
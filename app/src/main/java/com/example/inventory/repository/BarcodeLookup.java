@@ -0,0 +1,79 @@
+package com.example.inventory.repository;
+
+import com.example.inventory.db.LocalDatabaseHelper;
+import com.example.inventory.model.InventoryItem;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+/**
+ * Resolves a scanned barcode to an inventory document id in constant time:
+ * 1. the in-memory hash index of the shared repository,
+ * 2. the persisted SQLite barcode_index (works before the catalog has loaded),
+ * 3. an exact whereEqualTo("barcode") query as the last resort.
+ * Every hit is written back to the local index.
+ */
+public class BarcodeLookup {
+
+    public interface Callback {
+        void onFound(String itemId);
+        void onNotFound(String barcode);
+    }
+
+    private final FirebaseFirestore db;
+    private final InventoryRepository repository;
+    private final LocalDatabaseHelper localDb;
+
+    public BarcodeLookup(FirebaseFirestore db, InventoryRepository repository, LocalDatabaseHelper localDb) {
+        this.db = db;
+        this.repository = repository;
+        this.localDb = localDb;
+    }
+
+    /** Callbacks are delivered on the main thread. */
+    public void lookup(String rawBarcode, Callback callback) {
+        String barcode = (rawBarcode != null) ? rawBarcode.trim() : "";
+        if (barcode.isEmpty()) {
+            callback.onNotFound(barcode);
+            return;
+        }
+
+        // 1. In-memory index
+        InventoryItem item = repository.findByBarcode(barcode);
+        if (item != null) {
+            localDb.putBarcode(barcode, item.getId());
+            callback.onFound(item.getId());
+            return;
+        }
+
+        // 2. Persisted index (read off the main thread). Once the catalog is loaded the memory
+        //    index is authoritative, so a persisted entry it doesn't know about is stale.
+        localDb.findItemIdByBarcode(barcode, cachedId -> {
+            if (cachedId != null) {
+                if (!repository.isLoaded() || repository.getItem(cachedId) != null) {
+                    callback.onFound(cachedId);
+                    return;
+                }
+                localDb.removeBarcode(barcode);
+            }
+            queryServer(barcode, callback);
+        });
+    }
+
+    // 3. Exact-match query (served from the offline cache when there is no network)
+    private void queryServer(String barcode, Callback callback) {
+        db.collection("inventory")
+                .whereEqualTo("barcode", barcode)
+                .limit(1)
+                .get()
+                .addOnSuccessListener(snapshots -> {
+                    if (snapshots.isEmpty()) {
+                        callback.onNotFound(barcode);
+                        return;
+                    }
+                    DocumentSnapshot doc = snapshots.getDocuments().get(0);
+                    localDb.putBarcode(barcode, doc.getId());
+                    callback.onFound(doc.getId());
+                })
+                .addOnFailureListener(e -> callback.onNotFound(barcode));
+    }
+}
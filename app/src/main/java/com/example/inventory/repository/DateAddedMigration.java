@@ -0,0 +1,83 @@
+package com.example.inventory.repository;
+
+import com.example.inventory.model.InventoryItem;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One-time backfill of "dateAddedMillis" for items that only carry the legacy
+ * "MMM dd, yyyy" string. Each legacy string is parsed once, applied in memory right away,
+ * and written back so no device has to parse it again.
+ */
+public class DateAddedMigration implements InventoryStore.ChangeListener {
+
+    public static final String LEGACY_PATTERN = "MMM dd, yyyy";
+    private static final int MAX_BATCH_WRITES = 500; // Firestore WriteBatch limit
+
+    private final FirebaseFirestore db;
+    private final Map<String, Long> pending = new HashMap<>();
+    private final Set<String> submitted = new HashSet<>();
+
+    public DateAddedMigration(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    /**
+     * Fills in the epoch field of a freshly deserialized item if it is missing.
+     * Items touched here are queued for write-back on the next flush().
+     */
+    @Override
+    public void onItemChanged(InventoryItem oldItem, InventoryItem item) {
+        if (item == null || item.getDateAddedMillis() != 0 || item.getDateAdded() == null) return;
+
+        long millis = parseLegacyDate(item.getDateAdded());
+        if (millis == 0) return;
+
+        item.setDateAddedMillis(millis);
+        if (!submitted.contains(item.getId())) pending.put(item.getId(), millis);
+    }
+
+    /** Writes queued backfills in chunks of at most 500 updates. */
+    public void flush() {
+        if (pending.isEmpty()) return;
+
+        WriteBatch batch = db.batch();
+        int count = 0;
+        for (Map.Entry<String, Long> entry : pending.entrySet()) {
+            batch.update(db.collection("inventory").document(entry.getKey()), "dateAddedMillis", entry.getValue());
+            submitted.add(entry.getKey());
+            if (++count == MAX_BATCH_WRITES) {
+                batch.commit();
+                batch = db.batch();
+                count = 0;
+            }
+        }
+        if (count > 0) batch.commit();
+        pending.clear();
+    }
+
+    /** Parses a legacy "MMM dd, yyyy" date; returns 0 if it can't be read. */
+    public static long parseLegacyDate(String dateStr) {
+        if (dateStr == null || dateStr.isEmpty()) return 0;
+        // Strings were written with the device locale; fall back to English month names
+        Locale[] locales = {Locale.getDefault(), Locale.US};
+        for (Locale locale : locales) {
+            try {
+                Date date = new SimpleDateFormat(LEGACY_PATTERN, locale).parse(dateStr);
+                if (date != null) return date.getTime();
+            } catch (ParseException ignored) {
+                // Try the next locale
+            }
+        }
+        return 0;
+    }
+}
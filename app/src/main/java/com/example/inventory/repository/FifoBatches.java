@@ -0,0 +1,128 @@
+package com.example.inventory.repository;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * FIFO helpers for the inventory/{id}/batches sub-collection.
+ * Consumption itself happens inside StockMovementEngine's transaction.
+ *
+ * Depleted batches are archived (active = false) so the FIFO queue is just
+ * {@code active == true ORDER BY dateReceived} (composite index in firestore.indexes.json),
+ * and the item document caches the head of that queue in "fifoHead".
+ * Items created before this have no "fifoIndexed" flag and are backfilled once.
+ */
+public final class FifoBatches {
+
+    public static final String FIELD_HEAD = "fifoHead";
+    public static final String FIELD_INDEXED = "fifoIndexed";
+    // Stock-outs written offline whose batches haven't been consumed yet (see StockMovementEngine)
+    public static final String FIELD_PENDING_OUT = "fifoPendingOut";
+    public static final String FIELD_PENDING_COGS = "fifoPendingCogs";
+    // History record of the latest of them; the FIFO cost correction is booked on it
+    public static final String FIELD_PENDING_RECORD = "fifoPendingRecord";
+
+    // Active batches fetched per query page while collecting enough stock
+    private static final int PAGE_SIZE = 10;
+    private static final int MAX_BATCH_OPS = 500;
+
+    private FifoBatches() {}
+
+    public static CollectionReference batches(FirebaseFirestore db, String itemId) {
+        return db.collection("inventory").document(itemId).collection("batches");
+    }
+
+    /** Batches that still have stock, oldest first. */
+    public static Query activeQueue(FirebaseFirestore db, String itemId) {
+        return batches(db, itemId)
+                .whereEqualTo("active", true)
+                .orderBy("dateReceived", Query.Direction.ASCENDING);
+    }
+
+    /**
+     * Oldest active batches covering at least {@code needed} units (fewer if the queue runs out).
+     * Usually a single read of the cached head batch; only queries when the head can't cover it.
+     */
+    public static Task<List<DocumentSnapshot>> loadCandidates(FirebaseFirestore db, DocumentSnapshot item, int needed) {
+        if (needed <= 0) return Tasks.<List<DocumentSnapshot>>forResult(new ArrayList<>());
+
+        Task<Void> ready = Boolean.TRUE.equals(item.getBoolean(FIELD_INDEXED))
+                ? Tasks.<Void>forResult(null)
+                : backfill(db, item.getReference());
+
+        String headId = item.getString(FIELD_HEAD);
+        return ready.continueWithTask(t -> {
+            if (!t.isSuccessful()) return Tasks.<List<DocumentSnapshot>>forException(t.getException());
+            if (headId == null) return collect(db, item.getId(), needed, null, new ArrayList<>());
+
+            return batches(db, item.getId()).document(headId).get().continueWithTask(headTask -> {
+                if (!headTask.isSuccessful()) return Tasks.<List<DocumentSnapshot>>forException(headTask.getException());
+                DocumentSnapshot head = headTask.getResult();
+                if (head.exists() && Boolean.TRUE.equals(head.getBoolean("active"))
+                        && remaining(head) >= needed) {
+                    List<DocumentSnapshot> single = new ArrayList<>();
+                    single.add(head);
+                    return Tasks.forResult(single);
+                }
+                return collect(db, item.getId(), needed, null, new ArrayList<>());
+            });
+        });
+    }
+
+    // Pages through the active queue until the collected batches cover the need
+    private static Task<List<DocumentSnapshot>> collect(FirebaseFirestore db, String itemId, int needed,
+                                                        DocumentSnapshot after, List<DocumentSnapshot> result) {
+        Query page = activeQueue(db, itemId).limit(PAGE_SIZE);
+        if (after != null) page = page.startAfter(after);
+
+        return page.get().continueWithTask(t -> {
+            if (!t.isSuccessful()) return Tasks.<List<DocumentSnapshot>>forException(t.getException());
+            List<DocumentSnapshot> docs = t.getResult().getDocuments();
+            int covered = 0;
+            for (DocumentSnapshot doc : result) covered += remaining(doc);
+            for (DocumentSnapshot doc : docs) {
+                if (covered >= needed) break;
+                result.add(doc);
+                covered += remaining(doc);
+            }
+            if (covered >= needed || docs.size() < PAGE_SIZE) return Tasks.forResult(result);
+            return collect(db, itemId, needed, docs.get(docs.size() - 1), result);
+        });
+    }
+
+    // One-time pass over a legacy item's batches: flag the active ones, archive the rest
+    private static Task<Void> backfill(FirebaseFirestore db, DocumentReference itemRef) {
+        return itemRef.collection("batches").get().continueWithTask(t -> {
+            if (!t.isSuccessful()) return Tasks.<Void>forException(t.getException());
+
+            List<Task<Void>> commits = new ArrayList<>();
+            WriteBatch batch = db.batch();
+            int ops = 0;
+            for (DocumentSnapshot doc : t.getResult()) {
+                batch.update(doc.getReference(), "active", remaining(doc) > 0);
+                if (++ops == MAX_BATCH_OPS) {
+                    commits.add(batch.commit());
+                    batch = db.batch();
+                    ops = 0;
+                }
+            }
+            batch.update(itemRef, FIELD_INDEXED, true);
+            commits.add(batch.commit());
+            return Tasks.whenAll(commits);
+        });
+    }
+
+    static int remaining(DocumentSnapshot doc) {
+        Long value = doc.getLong("remainingQty");
+        return (value != null) ? value.intValue() : 0;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.inventory.repository;
+
+import com.example.inventory.model.InventoryItem;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Settles stock-outs that StockMovementEngine queued while offline: items carrying
+ * "fifoPendingOut" are collected as the catalog changes and, once a server snapshot shows the
+ * device is back online, each one gets a reconcile() transaction that consumes its FIFO batches.
+ * Several devices may race on the same item; the transaction makes all but the first a no-op.
+ */
+public class FifoReconciler implements InventoryStore.ChangeListener {
+
+    private final StockMovementEngine engine;
+    private final Set<String> pending = new HashSet<>();
+    private final Set<String> running = new HashSet<>();
+
+    public FifoReconciler(StockMovementEngine engine) {
+        this.engine = engine;
+    }
+
+    @Override
+    public void onItemChanged(InventoryItem oldItem, InventoryItem item) {
+        if (item == null) return;
+        if (item.getFifoPendingOut() > 0) {
+            pending.add(item.getId());
+        } else {
+            pending.remove(item.getId());
+        }
+    }
+
+    /** Starts a reconciliation for every queued item not already in flight. Main thread, online only. */
+    public void flush() {
+        for (String itemId : pending) {
+            if (!running.add(itemId)) continue;
+            engine.reconcile(itemId).addOnCompleteListener(t -> {
+                running.remove(itemId);
+                // Tried again with the next server snapshot
+                if (!t.isSuccessful()) pending.add(itemId);
+            });
+        }
+        pending.clear();
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.inventory.repository;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.example.inventory.model.InventoryItem;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs list filters off the main thread.
+ * Each submit() supersedes the previous one: pending debounces are dropped, queued work that
+ * became stale is skipped, and results of an outdated query are never delivered.
+ * Callbacks always arrive on the main thread.
+ */
+public class FilterPipeline {
+
+    /** Typing delay before a search query is executed. */
+    public static final long SEARCH_DEBOUNCE_MS = 250;
+
+    public interface Query {
+        List<InventoryItem> run(); // Called on the background executor
+    }
+
+    public interface Callback {
+        void onResult(List<InventoryItem> items); // Called on the main thread
+    }
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicInteger generation = new AtomicInteger();
+    private Runnable pendingStart;
+
+    /** Must be called on the main thread. */
+    public void submit(Query query, long debounceMs, Callback callback) {
+        final int myGeneration = generation.incrementAndGet();
+
+        if (pendingStart != null) mainHandler.removeCallbacks(pendingStart);
+        pendingStart = () -> {
+            pendingStart = null;
+            if (executor.isShutdown()) return;
+            executor.execute(() -> {
+                if (myGeneration != generation.get()) return; // A newer query was submitted
+                List<InventoryItem> result = query.run();
+                mainHandler.post(() -> {
+                    if (myGeneration == generation.get()) callback.onResult(result);
+                });
+            });
+        };
+
+        if (debounceMs > 0) {
+            mainHandler.postDelayed(pendingStart, debounceMs);
+        } else {
+            pendingStart.run();
+        }
+    }
+
+    /** Drops pending work and stops the executor (call from onDestroy). */
+    public void shutdown() {
+        generation.incrementAndGet();
+        if (pendingStart != null) mainHandler.removeCallbacks(pendingStart);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.inventory.repository;
+
+import android.content.Context;
+
+import com.example.inventory.InventoryApp;
+import com.example.inventory.model.InventoryItem;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.MetadataChanges;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Application-scoped owner of the inventory catalog.
+ * One Firestore listener feeds one InventoryStore; every screen observes it instead of
+ * opening its own listener, so switching tabs never re-downloads or re-materializes the catalog.
+ * Deltas are applied on the main thread; read methods are synchronized so they can also be
+ * called from background filter threads.
+ */
+public class InventoryRepository {
+
+    public static final Comparator<InventoryItem> NEWEST_FIRST =
+            (a, b) -> Long.compare(b.getDateAddedMillis(), a.getDateAddedMillis());
+
+    public interface Observer {
+        void onInventoryChanged(InventoryRepository repository);
+    }
+
+    /** Predicate used to build filtered views of the catalog. */
+    public interface ItemFilter {
+        boolean matches(InventoryItem item);
+    }
+
+    private final FirebaseFirestore db;
+    private final InventoryStore store = new InventoryStore();
+    private final DateAddedMigration dateMigration;
+    private final StockStatusMigration statusMigration;
+    private final InventorySearchIndex searchIndex = new InventorySearchIndex();
+    private final TransactionItemBackfill transactionBackfill;
+    private final FifoReconciler fifoReconciler;
+    private final List<Observer> observers = new CopyOnWriteArrayList<>();
+    private ListenerRegistration registration;
+    private boolean loaded = false;
+    private boolean serverLoaded = false;
+
+    public InventoryRepository(FirebaseFirestore db) {
+        this.db = db;
+        this.dateMigration = new DateAddedMigration(db);
+        this.transactionBackfill = new TransactionItemBackfill(db);
+        store.addChangeListener(dateMigration);
+        this.statusMigration = new StockStatusMigration(db);
+        store.addChangeListener(statusMigration);
+        store.addChangeListener(searchIndex);
+        this.fifoReconciler = new FifoReconciler(new StockMovementEngine(db));
+        store.addChangeListener(fifoReconciler);
+    }
+
+    public static InventoryRepository get(Context context) {
+        return ((InventoryApp) context.getApplicationContext()).getInventoryRepository();
+    }
+
+    /**
+     * Registers an observer and starts the shared listener if needed.
+     * If the catalog is already loaded the observer is notified immediately.
+     */
+    public void addObserver(Observer observer) {
+        observers.add(observer);
+        start();
+        if (loaded) observer.onInventoryChanged(this);
+    }
+
+    public void removeObserver(Observer observer) {
+        observers.remove(observer);
+        // The listener intentionally stays open: the next screen gets the catalog instantly
+    }
+
+    private void start() {
+        if (registration != null) return;
+        // Metadata events too: a warm cache is served first, and the switch to server data may
+        // carry no document changes (getDocumentChanges() still skips metadata-only ones)
+        registration = db.collection("inventory").addSnapshotListener(MetadataChanges.INCLUDE, (snapshots, e) -> {
+            if (e != null || snapshots == null) return;
+            boolean fromServer = !snapshots.getMetadata().isFromCache();
+            boolean becameServer = fromServer && !serverLoaded;
+            if (fromServer) serverLoaded = true;
+
+            boolean changed;
+            // Background filters (FilterPipeline) read the store under the same lock
+            synchronized (this) {
+                changed = store.applyChanges(snapshots);
+                dateMigration.flush();
+            }
+            // Needs the catalog to map legacy names to ids; only a server snapshot has all of it
+            if (fromServer) {
+                transactionBackfill.runOnce(getItems());
+                // Cached quantities may be stale; corrections are only written against server data
+                statusMigration.flush();
+                // Back online: settle stock-outs that were queued without their FIFO batches
+                fifoReconciler.flush();
+            }
+            if (!changed && loaded && !becameServer) return;
+
+            loaded = true;
+            for (Observer observer : observers) {
+                observer.onInventoryChanged(this);
+            }
+        });
+    }
+
+    /** Releases the listener and the cached catalog (e.g. on logout). */
+    public void stop() {
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+        synchronized (this) {
+            store.clear();
+            searchIndex.clear();
+        }
+        loaded = false;
+        serverLoaded = false;
+    }
+
+    public boolean isLoaded() { return loaded; }
+
+    /** True once the catalog has been confirmed by the server (not just served from the offline cache). */
+    public boolean isServerLoaded() { return serverLoaded; }
+
+    public synchronized InventoryItem getItem(String id) { return store.get(id); }
+
+    public synchronized List<InventoryItem> getItems() { return store.toList(); }
+
+    /**
+     * Catalog sorted newest first on the epoch key (no date parsing). Only the copy holds the
+     * lock; sorting it doesn't, so the snapshot listener on the main thread never waits for it.
+     */
+    public List<InventoryItem> getItemsNewestFirst() {
+        List<InventoryItem> list;
+        synchronized (this) {
+            list = store.toList();
+        }
+        Collections.sort(list, NEWEST_FIRST);
+        return list;
+    }
+
+    /**
+     * The n most recently added items, newest first.
+     * Uses a bounded min-heap (O(catalog * log n)) instead of sorting the whole catalog.
+     */
+    public synchronized List<InventoryItem> getRecentItems(int n) {
+        if (n <= 0) return new ArrayList<>();
+
+        // Head of the heap is the OLDEST of the current top-n
+        PriorityQueue<InventoryItem> heap = new PriorityQueue<>(n, Collections.reverseOrder(NEWEST_FIRST));
+        for (InventoryItem item : store.values()) {
+            if (heap.size() < n) {
+                heap.offer(item);
+            } else if (item.getDateAddedMillis() > heap.peek().getDateAddedMillis()) {
+                heap.poll();
+                heap.offer(item);
+            }
+        }
+
+        List<InventoryItem> recent = new ArrayList<>(heap);
+        Collections.sort(recent, NEWEST_FIRST);
+        return recent;
+    }
+
+    public synchronized List<InventoryItem> getItems(ItemFilter filter) {
+        List<InventoryItem> result = new ArrayList<>();
+        for (InventoryItem item : store.values()) {
+            if (filter.matches(item)) result.add(item);
+        }
+        return result;
+    }
+
+    /** Items whose name or barcode contains the query, newest first (served by the search index). */
+    public List<InventoryItem> search(String query) {
+        List<InventoryItem> result = new ArrayList<>();
+        synchronized (this) {
+            for (String id : searchIndex.search(query)) {
+                InventoryItem item = store.get(id);
+                if (item != null) result.add(item);
+            }
+        }
+        // Sorted outside the lock, like getItemsNewestFirst()
+        Collections.sort(result, NEWEST_FIRST);
+        return result;
+    }
+
+    /** Exact barcode match from the in-memory hash index, or null. */
+    public synchronized InventoryItem findByBarcode(String barcode) {
+        String id = searchIndex.findIdByBarcode(barcode);
+        return (id != null) ? store.get(id) : null;
+    }
+
+    public synchronized int getItemCount() { return store.size(); }
+
+    public synchronized long getTotalQuantity() { return store.getTotalQuantity(); }
+
+    public synchronized double getTotalValue() { return store.getTotalValue(); }
+}
@@ -0,0 +1,164 @@
+package com.example.inventory.repository;
+
+import com.example.inventory.model.InventoryItem;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory search index over the item store, updated from store deltas.
+ *
+ * - Names and barcodes are lowercased ONCE when an item changes, never per keystroke.
+ * - Queries of 3+ chars look up the rarest trigram's posting set and only verify those candidates.
+ * - Shorter queries scan the pre-normalized keys (no per-item allocation).
+ * - Barcodes also have an exact hash map for scanner lookups. Several items may share a barcode, so
+ *   it maps to all of them and removing one leaves the others findable.
+ */
+public class InventorySearchIndex implements InventoryStore.ChangeListener {
+
+    private static final int GRAM = 3;
+
+    private final Map<String, String> nameKeys = new HashMap<>();     // id -> lowercase name
+    private final Map<String, String> barcodeKeys = new HashMap<>();  // id -> lowercase barcode
+    private final Map<String, Set<String>> grams = new HashMap<>();   // trigram -> ids
+    private final Map<String, String> exactBarcodes = new HashMap<>();       // id -> trimmed barcode
+    private final Map<String, Set<String>> barcodeToIds = new HashMap<>();   // trimmed barcode -> ids
+
+    @Override
+    public void onItemChanged(InventoryItem oldItem, InventoryItem newItem) {
+        String id = (newItem != null) ? newItem.getId() : oldItem.getId();
+        String newName = (newItem != null) ? normalize(newItem.getName()) : null;
+        String newBarcode = (newItem != null) ? normalize(newItem.getBarcode()) : null;
+
+        String newExact = (newItem != null) ? exact(newItem.getBarcode()) : null;
+
+        String oldName = nameKeys.get(id);
+        String oldBarcode = barcodeKeys.get(id);
+
+        // Quantity/price changes leave the searchable text untouched: nothing to re-index
+        if (newItem != null && equal(oldName, newName) && equal(oldBarcode, newBarcode)
+                && equal(exactBarcodes.get(id), newExact) && nameKeys.containsKey(id)) {
+            return;
+        }
+
+        unindex(id, oldName, oldBarcode);
+        removeBarcode(id);
+
+        if (newItem != null) {
+            nameKeys.put(id, newName);
+            barcodeKeys.put(id, newBarcode);
+            addGrams(id, newName);
+            addGrams(id, newBarcode);
+            if (newExact != null) {
+                exactBarcodes.put(id, newExact);
+                Set<String> ids = barcodeToIds.get(newExact);
+                if (ids == null) {
+                    ids = new LinkedHashSet<>();
+                    barcodeToIds.put(newExact, ids);
+                }
+                ids.add(id);
+            }
+        }
+    }
+
+    /** Ids of items whose name or barcode contains the query (case-insensitive). */
+    public List<String> search(String query) {
+        String q = normalize(query);
+        if (q.isEmpty()) return new ArrayList<>(nameKeys.keySet());
+
+        List<String> result = new ArrayList<>();
+        if (q.length() < GRAM) {
+            for (Map.Entry<String, String> entry : nameKeys.entrySet()) {
+                String id = entry.getKey();
+                if (entry.getValue().contains(q) || barcodeKeys.get(id).contains(q)) result.add(id);
+            }
+            return result;
+        }
+
+        // Every match contains every trigram of the query, so the smallest posting set bounds the work
+        Set<String> candidates = null;
+        for (int i = 0; i + GRAM <= q.length(); i++) {
+            Set<String> posting = grams.get(q.substring(i, i + GRAM));
+            if (posting == null) return result;
+            if (candidates == null || posting.size() < candidates.size()) candidates = posting;
+        }
+
+        for (String id : candidates) {
+            if (nameKeys.get(id).contains(q) || barcodeKeys.get(id).contains(q)) result.add(id);
+        }
+        return result;
+    }
+
+    /** Exact barcode lookup; returns an item id (the earliest indexed if several share it) or null. */
+    public String findIdByBarcode(String barcode) {
+        if (barcode == null) return null;
+        Set<String> ids = barcodeToIds.get(barcode.trim());
+        return (ids != null) ? ids.iterator().next() : null;
+    }
+
+    public void clear() {
+        nameKeys.clear();
+        barcodeKeys.clear();
+        grams.clear();
+        exactBarcodes.clear();
+        barcodeToIds.clear();
+    }
+
+    private void addGrams(String id, String key) {
+        for (int i = 0; i + GRAM <= key.length(); i++) {
+            String gram = key.substring(i, i + GRAM);
+            Set<String> posting = grams.get(gram);
+            if (posting == null) {
+                posting = new HashSet<>();
+                grams.put(gram, posting);
+            }
+            posting.add(id);
+        }
+    }
+
+    private void unindex(String id, String name, String barcode) {
+        removeGrams(id, name);
+        removeGrams(id, barcode);
+        nameKeys.remove(id);
+        barcodeKeys.remove(id);
+    }
+
+    private void removeBarcode(String id) {
+        String barcode = exactBarcodes.remove(id);
+        if (barcode == null) return;
+        Set<String> ids = barcodeToIds.get(barcode);
+        if (ids == null) return;
+        ids.remove(id);
+        if (ids.isEmpty()) barcodeToIds.remove(barcode);
+    }
+
+    private void removeGrams(String id, String key) {
+        if (key == null) return;
+        for (int i = 0; i + GRAM <= key.length(); i++) {
+            String gram = key.substring(i, i + GRAM);
+            Set<String> posting = grams.get(gram);
+            if (posting == null) continue;
+            posting.remove(id);
+            if (posting.isEmpty()) grams.remove(gram);
+        }
+    }
+
+    private static String normalize(String text) {
+        return (text == null) ? "" : text.toLowerCase(Locale.ROOT).trim();
+    }
+
+    private static String exact(String barcode) {
+        if (barcode == null || barcode.trim().isEmpty()) return null;
+        return barcode.trim();
+    }
+
+    private static boolean equal(String a, String b) {
+        return (a == null) ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.inventory.repository;
+
+import android.text.TextUtils;
+
+import com.example.inventory.model.InventoryItem;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregate counters kept in "stats/inventory".
+ * Every stock mutation adds its increments to the SAME batch/transaction as the item write,
+ * so the dashboard can read one document instead of summing the whole collection.
+ *
+ * Layout: { totalQuantity, totalValue, itemCount, seeded,
+ *           categories: { <name>: { quantity, value, itemCount } } }
+ *
+ * Writers merge increments without reading, so the document can exist before it was ever seeded
+ * (a stock change right after upgrading creates it with just that delta). Only "seeded" = true
+ * means the counters cover the whole catalog.
+ */
+public final class InventoryStats {
+
+    public static final String COLLECTION = "stats";
+    public static final String DOCUMENT = "inventory";
+    public static final String UNCATEGORIZED = "Uncategorized";
+    public static final String FIELD_SEEDED = "seeded";
+
+    private InventoryStats() {}
+
+    public static DocumentReference ref(FirebaseFirestore db) {
+        return db.collection(COLLECTION).document(DOCUMENT);
+    }
+
+    /** Queues a quantity / value / item-count change for one category. */
+    public static void applyDelta(WriteBatch batch, FirebaseFirestore db, String category,
+                                  long qtyDelta, double valueDelta, int itemCountDelta) {
+        batch.set(ref(db), buildDelta(category, qtyDelta, valueDelta, itemCountDelta), SetOptions.merge());
+    }
+
+    /** Same as above, inside a Firestore transaction. */
+    public static void applyDelta(Transaction transaction, FirebaseFirestore db, String category,
+                                  long qtyDelta, double valueDelta, int itemCountDelta) {
+        transaction.set(ref(db), buildDelta(category, qtyDelta, valueDelta, itemCountDelta), SetOptions.merge());
+    }
+
+    /** Per-category totals for {@link #applyDeltas}. */
+    public static class CategoryDelta {
+        public long quantity;
+        public double value;
+        public int itemCount;
+    }
+
+    /** Several categories in ONE write (bulk import), keyed by {@link #categoryKey}. */
+    public static void applyDeltas(WriteBatch batch, FirebaseFirestore db, Map<String, CategoryDelta> byCategory) {
+        long totalQuantity = 0;
+        double totalValue = 0.0;
+        int totalItems = 0;
+        Map<String, Object> categories = new HashMap<>();
+        for (Map.Entry<String, CategoryDelta> entry : byCategory.entrySet()) {
+            CategoryDelta d = entry.getValue();
+            Map<String, Object> categoryDelta = new HashMap<>();
+            categoryDelta.put("quantity", FieldValue.increment(d.quantity));
+            categoryDelta.put("value", FieldValue.increment(d.value));
+            if (d.itemCount != 0) categoryDelta.put("itemCount", FieldValue.increment(d.itemCount));
+            categories.put(entry.getKey(), categoryDelta);
+
+            totalQuantity += d.quantity;
+            totalValue += d.value;
+            totalItems += d.itemCount;
+        }
+
+        Map<String, Object> delta = new HashMap<>();
+        delta.put("totalQuantity", FieldValue.increment(totalQuantity));
+        delta.put("totalValue", FieldValue.increment(totalValue));
+        if (totalItems != 0) delta.put("itemCount", FieldValue.increment(totalItems));
+        delta.put("categories", categories);
+        batch.set(ref(db), delta, SetOptions.merge());
+    }
+
+    private static Map<String, Object> buildDelta(String category, long qtyDelta, double valueDelta, int itemCountDelta) {
+        Map<String, Object> categoryDelta = new HashMap<>();
+        categoryDelta.put("quantity", FieldValue.increment(qtyDelta));
+        categoryDelta.put("value", FieldValue.increment(valueDelta));
+        if (itemCountDelta != 0) categoryDelta.put("itemCount", FieldValue.increment(itemCountDelta));
+
+        Map<String, Object> categories = new HashMap<>();
+        categories.put(categoryKey(category), categoryDelta);
+
+        Map<String, Object> delta = new HashMap<>();
+        delta.put("totalQuantity", FieldValue.increment(qtyDelta));
+        delta.put("totalValue", FieldValue.increment(valueDelta));
+        if (itemCountDelta != 0) delta.put("itemCount", FieldValue.increment(itemCountDelta));
+        delta.put("categories", categories);
+        return delta;
+    }
+
+    public static String categoryKey(String category) {
+        return TextUtils.isEmpty(category) ? UNCATEGORIZED : category;
+    }
+
+    public static boolean isSeeded(DocumentSnapshot stats) {
+        return Boolean.TRUE.equals(stats.getBoolean(FIELD_SEEDED));
+    }
+
+    private static boolean seeding = false; // Main thread only
+
+    /**
+     * Seeds the counters from the catalog unless they are already marked seeded (first run after
+     * upgrading). Started only once the repository has server data; the seed itself is computed
+     * from a server read of the catalog, taken after a server read of the counters. The seed is
+     * written only if the counters are still exactly what was read first: then no writer committed
+     * in between, and every earlier increment belongs to an item the catalog read already reflects,
+     * so replacing the counters folds them in. Otherwise it starts over. The transaction re-checks
+     * the marker, so a seeded document is never overwritten.
+     */
+    public static void seedIfMissing(FirebaseFirestore db, InventoryRepository repository) {
+        if (!repository.isServerLoaded() || seeding) return;
+        seeding = true;
+
+        DocumentReference statsRef = ref(db);
+        statsRef.get(Source.SERVER).continueWithTask(s -> {
+            DocumentSnapshot before = s.getResult();
+            if (isSeeded(before)) return Tasks.forResult(false);
+            Map<String, Object> counters = before.getData();
+
+            return db.collection("inventory").get(Source.SERVER).continueWithTask(c -> {
+                Map<String, Object> seed = buildSeed(c.getResult().getDocuments());
+                return db.runTransaction(transaction -> {
+                    DocumentSnapshot current = transaction.get(statsRef);
+                    if (isSeeded(current)) return false;
+                    Map<String, Object> after = current.getData();
+                    // A writer got in after the first read, maybe after the catalog read too
+                    if ((counters == null) ? after != null : !counters.equals(after)) return true;
+                    transaction.set(statsRef, seed);
+                    return false;
+                });
+            });
+        }).addOnCompleteListener(t -> {
+            seeding = false;
+            // Raced with a writer: its own trigger may have arrived while this one was still running
+            if (t.isSuccessful() && Boolean.TRUE.equals(t.getResult())) seedIfMissing(db, repository);
+        });
+    }
+
+    private static Map<String, Object> buildSeed(List<DocumentSnapshot> docs) {
+        long totalQuantity = 0;
+        double totalValue = 0.0;
+        long itemCount = 0;
+        Map<String, Map<String, Object>> categories = new HashMap<>();
+        for (DocumentSnapshot doc : docs) {
+            InventoryItem item = doc.toObject(InventoryItem.class);
+            if (item == null) continue;
+            double value = item.getQuantity() * item.getPrice();
+            totalQuantity += item.getQuantity();
+            totalValue += value;
+            itemCount++;
+
+            Map<String, Object> cat = categories.get(categoryKey(item.getCategory()));
+            if (cat == null) {
+                cat = new HashMap<>();
+                cat.put("quantity", 0L);
+                cat.put("value", 0.0);
+                cat.put("itemCount", 0L);
+                categories.put(categoryKey(item.getCategory()), cat);
+            }
+            cat.put("quantity", (Long) cat.get("quantity") + item.getQuantity());
+            cat.put("value", (Double) cat.get("value") + value);
+            cat.put("itemCount", (Long) cat.get("itemCount") + 1);
+        }
+
+        Map<String, Object> seed = new HashMap<>();
+        seed.put("totalQuantity", totalQuantity);
+        seed.put("totalValue", totalValue);
+        seed.put("itemCount", itemCount);
+        seed.put("categories", categories);
+        seed.put(FIELD_SEEDED, true);
+        return seed;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.inventory.repository;
+
+import com.example.inventory.model.InventoryItem;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Id-keyed copy of the "inventory" collection.
+ * Only the documents listed in a snapshot's DocumentChanges are deserialized,
+ * so one remote increment costs one toObject() instead of a full catalog rebuild.
+ */
+public class InventoryStore {
+
+    /** Notified for every applied delta; newItem is null when the item was removed. */
+    public interface ChangeListener {
+        void onItemChanged(InventoryItem oldItem, InventoryItem newItem);
+    }
+
+    private final Map<String, InventoryItem> items = new HashMap<>();
+    private final List<ChangeListener> listeners = new ArrayList<>();
+
+    // Running dashboard totals, adjusted by each delta
+    private long totalQuantity = 0;
+    private double totalValue = 0.0;
+
+    /**
+     * Applies the ADDED / MODIFIED / REMOVED deltas of a snapshot.
+     * @return true if at least one item changed.
+     */
+    public boolean applyChanges(QuerySnapshot snapshot) {
+        List<DocumentChange> changes = snapshot.getDocumentChanges();
+        for (DocumentChange change : changes) {
+            QueryDocumentSnapshot doc = change.getDocument();
+            String id = doc.getId();
+
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                remove(id);
+            } else {
+                InventoryItem item = doc.toObject(InventoryItem.class);
+                item.setId(id);
+                // A modified item is always a NEW instance, so adapters can diff by reference
+                put(item);
+            }
+        }
+        return !changes.isEmpty();
+    }
+
+    public void addChangeListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    private void put(InventoryItem item) {
+        InventoryItem old = items.put(item.getId(), item);
+        if (old != null) subtractTotals(old);
+        totalQuantity += item.getQuantity();
+        totalValue += item.getQuantity() * item.getPrice();
+        for (ChangeListener listener : listeners) listener.onItemChanged(old, item);
+    }
+
+    private void remove(String id) {
+        InventoryItem old = items.remove(id);
+        if (old == null) return;
+        subtractTotals(old);
+        for (ChangeListener listener : listeners) listener.onItemChanged(old, null);
+    }
+
+    private void subtractTotals(InventoryItem item) {
+        totalQuantity -= item.getQuantity();
+        totalValue -= item.getQuantity() * item.getPrice();
+    }
+
+    public InventoryItem get(String id) { return items.get(id); }
+
+    public Collection<InventoryItem> values() { return items.values(); }
+
+    public List<InventoryItem> toList() { return new ArrayList<>(items.values()); }
+
+    public int size() { return items.size(); }
+
+    public long getTotalQuantity() { return totalQuantity; }
+
+    public double getTotalValue() { return totalValue; }
+
+    public void clear() {
+        items.clear();
+        totalQuantity = 0;
+        totalValue = 0.0;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.inventory.repository;
+
+import com.example.inventory.model.InventoryItem;
+import com.google.firebase.firestore.AggregateField;
+import com.google.firebase.firestore.AggregateQuery;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+
+import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * FIFO valuation read from running totals.
+ * StockMovementEngine keeps, on every item document:
+ *   fifoValue            - sum of remainingQty * unitCost over the item's batches
+ *   cogsTotal            - cost of every unit ever taken out (oldest batches first)
+ *   cogsByMonth.{yyyy-MM} - the same, bucketed by month
+ * so valuing the whole catalog is a pass over the already-loaded items, never over batches.
+ * COGS for an exact date range is a server-side sum over the "cogs" stored on each history
+ * record ({@link #cogsSum}); the month buckets are the offline approximation.
+ */
+public final class InventoryValuation {
+
+    public static final String FIELD_VALUE = "fifoValue";
+    public static final String FIELD_COGS = "cogsTotal";
+    public static final String FIELD_COGS_BY_MONTH = "cogsByMonth";
+
+    private InventoryValuation() {}
+
+    public static class Summary {
+        public double inventoryValue;
+        public double cogs;
+    }
+
+    /** FIFO value of what is on hand. Items not valued yet fall back to quantity * price. */
+    public static double valueOf(InventoryItem item) {
+        Double fifoValue = item.getFifoValue();
+        return (fifoValue != null) ? fifoValue : item.getQuantity() * item.getPrice();
+    }
+
+    /** COGS of one item for the whole calendar months touched by [from, to]; null bounds are open. */
+    public static double cogsOf(InventoryItem item, Date from, Date to) {
+        Map<String, Double> byMonth = item.getCogsByMonth();
+        if (byMonth == null) return 0.0;
+        if (from == null && to == null) return item.getCogsTotal();
+
+        String fromKey = (from != null) ? monthKey(from) : null;
+        String toKey = (to != null) ? monthKey(to) : null;
+        double cogs = 0.0;
+        for (Map.Entry<String, Double> entry : byMonth.entrySet()) {
+            // "yyyy-MM" keys sort chronologically as strings
+            if (fromKey != null && entry.getKey().compareTo(fromKey) < 0) continue;
+            if (toKey != null && entry.getKey().compareTo(toKey) > 0) continue;
+            if (entry.getValue() != null) cogs += entry.getValue();
+        }
+        return cogs;
+    }
+
+    public static Summary summarize(Collection<InventoryItem> items, Date from, Date to) {
+        Summary summary = new Summary();
+        for (InventoryItem item : items) {
+            summary.inventoryValue += valueOf(item);
+            summary.cogs += cogsOf(item, from, to);
+        }
+        return summary;
+    }
+
+    /** Sum of "cogs" over the history records in [from, to] (only OUT records carry one); null bounds are open. */
+    public static AggregateQuery cogsSum(FirebaseFirestore db, Date from, Date to) {
+        Query query = db.collection("transactions");
+        if (from != null) query = query.whereGreaterThanOrEqualTo("timestamp", from);
+        if (to != null) query = query.whereLessThanOrEqualTo("timestamp", to);
+        return query.aggregate(AggregateField.sum("cogs"));
+    }
+
+    /** Cost of a batch unit; batches received before costing was tracked use the item's price. */
+    static double unitCost(DocumentSnapshot batch, double fallback) {
+        Double cost = batch.getDouble("unitCost");
+        return (cost != null) ? cost : fallback;
+    }
+
+    static String monthKey(Date date) {
+        return new SimpleDateFormat("yyyy-MM", Locale.US).format(date);
+    }
+}
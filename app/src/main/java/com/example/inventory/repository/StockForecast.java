@@ -0,0 +1,87 @@
+package com.example.inventory.repository;
+
+import com.example.inventory.model.InventoryItem;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.Comparator;
+import java.util.Map;
+
+/**
+ * Consumption velocity and reorder points, kept up to date incrementally.
+ *
+ * Velocity (units/day) is an exponentially weighted moving average over stock-outs with a time
+ * constant of VELOCITY_TAU_DAYS. Movements arrive at irregular times, so the average decays with
+ * the elapsed time instead of per event: each stock-out of q units at time t does
+ *
+ *     v = v * exp(-(t - t_last) / tau) + q / tau
+ *
+ * and readers decay the stored value to "now" the same way. For steady consumption of r units/day
+ * this converges to r. Only the item document is touched (inside StockMovementEngine's transaction),
+ * so nothing ever re-scans the history.
+ *
+ * Reorder point = velocity * (lead time + safety days), never below the item's minStock, so items
+ * without movements keep behaving exactly as before.
+ */
+public final class StockForecast {
+
+    public static final String FIELD_VELOCITY = "velocity";
+    public static final String FIELD_VELOCITY_AT = "velocityAt";
+    public static final String FIELD_LEAD_TIME = "leadTimeDays";
+
+    public static final double VELOCITY_TAU_DAYS = 14.0;
+    public static final int DEFAULT_LEAD_TIME_DAYS = 7;
+    // Buffer against demand above the average while waiting for the delivery
+    public static final int SAFETY_DAYS = 3;
+
+    private static final double DAY_MILLIS = 24.0 * 60 * 60 * 1000;
+
+    /** Lowest days of cover first; items that aren't moving go last. */
+    public static Comparator<InventoryItem> mostUrgentFirst(long now) {
+        return (a, b) -> Double.compare(daysOfCover(a, now), daysOfCover(b, now));
+    }
+
+    private StockForecast() {}
+
+    /** Adds the velocity fields for a stock-out of {@code qty} units to an item update; returns the new velocity. */
+    public static double onStockOut(DocumentSnapshot item, int qty, long now, Map<String, Object> itemUpdate) {
+        double velocity = velocity(item, now) + qty / VELOCITY_TAU_DAYS;
+        itemUpdate.put(FIELD_VELOCITY, velocity);
+        itemUpdate.put(FIELD_VELOCITY_AT, now);
+        return velocity;
+    }
+
+    /** Units per day as of {@code now}, from a raw item document. */
+    public static double velocity(DocumentSnapshot item, long now) {
+        Double velocity = item.getDouble(FIELD_VELOCITY);
+        Long at = item.getLong(FIELD_VELOCITY_AT);
+        return decay(velocity != null ? velocity : 0.0, at != null ? at : now, now);
+    }
+
+    /** Units per day as of {@code now}. */
+    public static double velocity(InventoryItem item, long now) {
+        return decay(item.getVelocity(), item.getVelocityAt(), now);
+    }
+
+    public static int reorderPoint(InventoryItem item, long now) {
+        return reorderPoint(item.getMinStock(), item.getLeadTimeDays(), velocity(item, now));
+    }
+
+    public static int reorderPoint(int minStock, Integer leadTimeDays, double velocity) {
+        int leadTime = (leadTimeDays != null) ? leadTimeDays : DEFAULT_LEAD_TIME_DAYS;
+        int forecast = (int) Math.ceil(velocity * (leadTime + SAFETY_DAYS));
+        return Math.max(minStock, forecast);
+    }
+
+    /** Days until the stock runs out at the current velocity (infinite when nothing is consumed). */
+    public static double daysOfCover(InventoryItem item, long now) {
+        double velocity = velocity(item, now);
+        if (velocity <= 0) return Double.POSITIVE_INFINITY;
+        return item.getQuantity() / velocity;
+    }
+
+    private static double decay(double velocity, long from, long now) {
+        if (velocity <= 0) return 0.0;
+        double elapsedDays = Math.max(0, now - from) / DAY_MILLIS;
+        return velocity * Math.exp(-elapsedDays / VELOCITY_TAU_DAYS);
+    }
+}
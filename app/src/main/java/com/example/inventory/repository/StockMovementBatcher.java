@@ -0,0 +1,288 @@
+package com.example.inventory.repository;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.example.inventory.db.LocalDatabaseHelper;
+import com.example.inventory.model.Batch;
+import com.example.inventory.model.InventoryItem;
+import com.example.inventory.model.Transaction;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Accumulates per-item stock deltas from a scan session and commits them coalesced:
+ * one movement per ITEM per flush instead of one round-trip per scan.
+ * Stock-in goes into a single WriteBatch (increment, history record, new FIFO batch);
+ * stock-out has to consume FIFO batches, so each item goes through StockMovementEngine's transaction.
+ * Flushes on a timer or when enough items are pending. A flushed movement is only dropped once its
+ * commit succeeds: failed items are merged back into the pending deltas and retried with a growing
+ * delay, up to MAX_ATTEMPTS times. Failures retrying can't fix (a stock-out that no longer fits the
+ * shelf, permission denied, a deleted item) and items out of attempts are discarded and reported.
+ * Offline, the engine queues movements as plain writes.
+ * All methods must be called on the main thread.
+ */
+public class StockMovementBatcher {
+
+    public interface Listener {
+        void onCommitted(int itemCount, int unitCount);
+        /** Some items failed and will be retried. */
+        void onFailed(Exception e);
+        /** Some items failed for good; their movements were dropped. */
+        void onDiscarded(int itemCount, Exception e);
+    }
+
+    public static final long FLUSH_INTERVAL_MS = 5000;
+    // 5 writes per item (quantity, history, batch, daily + weekly item rollup)
+    // + one stats write + two rollup buckets stays under the 500-op limit
+    public static final int MAX_PENDING_ITEMS = 99;
+    public static final int MAX_ATTEMPTS = 5;
+    private static final long MAX_RETRY_DELAY_MS = 60000;
+
+    private final FirebaseFirestore db;
+    private final StockMovementEngine engine;
+    private final InventoryRepository repository;
+    private final LocalDatabaseHelper localDb;
+    private Listener listener; // Null once closed
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flushTask = this::flush;
+
+    // itemId -> signed delta, in scan order
+    private final Map<String, Integer> pending = new LinkedHashMap<>();
+    private int pendingUnits = 0;
+    // itemId -> failed commits in a row
+    private final Map<String, Integer> failures = new HashMap<>();
+
+    public StockMovementBatcher(FirebaseFirestore db, InventoryRepository repository,
+                                LocalDatabaseHelper localDb, Listener listener) {
+        this.db = db;
+        this.engine = new StockMovementEngine(db);
+        this.repository = repository;
+        this.localDb = localDb;
+        this.listener = listener;
+    }
+
+    /**
+     * Queues a movement. Returns false if a stock-out would take the item below zero
+     * (known quantity minus what is already pending).
+     */
+    public boolean add(InventoryItem item, int delta) {
+        Integer current = pending.get(item.getId());
+        int newDelta = (current != null ? current : 0) + delta;
+        if (item.getQuantity() + newDelta < 0) return false;
+
+        if (newDelta == 0) {
+            pending.remove(item.getId());
+        } else {
+            pending.put(item.getId(), newDelta);
+        }
+        pendingUnits += Math.abs(delta);
+
+        if (pending.size() >= MAX_PENDING_ITEMS) {
+            flush();
+        } else {
+            handler.removeCallbacks(flushTask);
+            handler.postDelayed(flushTask, FLUSH_INTERVAL_MS);
+        }
+        return true;
+    }
+
+    /** Pending delta for an item (not yet committed). */
+    public int getPendingDelta(String itemId) {
+        Integer delta = pending.get(itemId);
+        return delta != null ? delta : 0;
+    }
+
+    public int getPendingItemCount() { return pending.size(); }
+
+    public int getPendingUnits() { return pendingUnits; }
+
+    /** Commits up to MAX_PENDING_ITEMS pending items: stock-in as one WriteBatch, stock-out per item via the engine. */
+    public void flush() {
+        handler.removeCallbacks(flushTask);
+        if (pending.isEmpty()) {
+            pendingUnits = 0;
+            return;
+        }
+
+        // Kept until the commits complete; whatever fails goes back into pending.
+        // Requeued failures can push pending past the batch limit, so take at most one batch's worth.
+        final Map<String, Integer> committing = new LinkedHashMap<>();
+        Iterator<Map.Entry<String, Integer>> it = pending.entrySet().iterator();
+        while (it.hasNext() && committing.size() < MAX_PENDING_ITEMS) {
+            Map.Entry<String, Integer> entry = it.next();
+            committing.put(entry.getKey(), entry.getValue());
+            it.remove();
+        }
+        pendingUnits = 0;
+        for (int delta : pending.values()) pendingUnits += Math.abs(delta);
+        if (!pending.isEmpty()) handler.post(flushTask);
+
+        WriteBatch batch = db.batch();
+        boolean hasStockIn = false;
+        Map<String, InventoryStats.CategoryDelta> stats = new HashMap<>();
+        TransactionRollups.Delta rollup = new TransactionRollups.Delta();
+        final Map<String, String> names = new HashMap<>();
+        List<Task<?>> commits = new ArrayList<>();
+        List<List<String>> commitItems = new ArrayList<>(); // Item ids covered by each commit
+        List<String> stockInItems = new ArrayList<>();
+
+        for (Map.Entry<String, Integer> entry : committing.entrySet()) {
+            String itemId = entry.getKey();
+            int delta = entry.getValue();
+            InventoryItem item = repository.getItem(itemId);
+            if (item == null) continue; // Deleted while scanning
+
+            names.put(itemId, item.getName());
+            // Stock-out consumes batches; an item with no FIFO value yet needs it seeded in a transaction
+            if (delta < 0 || item.getFifoValue() == null) {
+                commits.add(engine.changeBy(itemId, delta));
+                commitItems.add(Collections.singletonList(itemId));
+                continue;
+            }
+
+            hasStockIn = true;
+            stockInItems.add(itemId);
+            // Status from the quantity this device sees; StockStatusMigration corrects it if that was stale
+            String status = StockStatus.of(item.getQuantity() + delta, item.getMinStock());
+            batch.update(db.collection("inventory").document(itemId),
+                    "quantity", FieldValue.increment(delta),
+                    InventoryValuation.FIELD_VALUE, FieldValue.increment(delta * item.getPrice()),
+                    StockStatus.FIELD, status,
+                    StockStatus.FIELD_UPDATED_AT, FieldValue.serverTimestamp());
+            // Resulting quantity as this device sees it (the increment itself is conflict-free)
+            batch.set(db.collection("transactions").document(),
+                    new Transaction(itemId, item.getName(), item.getBarcode(), "IN", delta,
+                            item.getQuantity() + delta, FirebaseAuth.getInstance().getUid()));
+            batch.set(FifoBatches.batches(db, itemId).document(), new Batch(delta, item.getPrice()));
+
+            String category = InventoryStats.categoryKey(item.getCategory());
+            InventoryStats.CategoryDelta categoryDelta = stats.get(category);
+            if (categoryDelta == null) {
+                categoryDelta = new InventoryStats.CategoryDelta();
+                stats.put(category, categoryDelta);
+            }
+            categoryDelta.quantity += delta;
+            categoryDelta.value += delta * item.getPrice();
+            rollup.add(itemId, item.getName(), item.getCategory(), "IN", delta);
+        }
+
+        if (hasStockIn) {
+            // One stats write and one write per rollup bucket instead of one per item
+            InventoryStats.applyDeltas(batch, db, stats);
+            TransactionRollups.apply(batch, db, new Date(), rollup);
+            commits.add(batch.commit());
+            commitItems.add(stockInItems);
+        }
+
+        Tasks.whenAllComplete(commits).addOnSuccessListener(done -> {
+            Exception retryFailure = null;
+            Exception discardFailure = null;
+            Set<String> retry = new HashSet<>();
+            Set<String> discard = new HashSet<>();
+            for (int i = 0; i < done.size(); i++) {
+                Task<?> task = done.get(i);
+                if (task.isSuccessful()) continue;
+                Exception e = task.getException();
+                if (isPermanent(e)) {
+                    discardFailure = e;
+                    discard.addAll(commitItems.get(i));
+                } else {
+                    retryFailure = e;
+                    retry.addAll(commitItems.get(i));
+                }
+            }
+
+            int items = 0;
+            int units = 0;
+            int maxAttempts = 0;
+            for (Map.Entry<String, Integer> entry : committing.entrySet()) {
+                String itemId = entry.getKey();
+                int delta = entry.getValue();
+                if (retry.contains(itemId)) {
+                    Integer before = failures.get(itemId);
+                    int attempts = (before != null ? before : 0) + 1;
+                    if (attempts < MAX_ATTEMPTS) {
+                        failures.put(itemId, attempts);
+                        maxAttempts = Math.max(maxAttempts, attempts);
+                        requeue(itemId, delta);
+                        continue;
+                    }
+                    discardFailure = retryFailure;
+                    discard.add(itemId);
+                }
+                failures.remove(itemId);
+                if (discard.contains(itemId)) continue;
+                String name = names.get(itemId);
+                if (name == null) continue;
+                localDb.logAction(delta > 0 ? "STOCK_IN" : "STOCK_OUT", name);
+                items++;
+                units += Math.abs(delta);
+            }
+
+            if (maxAttempts > 0) {
+                // 5s, 10s, 20s, ... so a server that keeps refusing isn't hammered
+                long delay = Math.min(FLUSH_INTERVAL_MS << (maxAttempts - 1), MAX_RETRY_DELAY_MS);
+                handler.removeCallbacks(flushTask);
+                handler.postDelayed(flushTask, delay);
+            }
+            if (listener == null) return;
+            if (items > 0) listener.onCommitted(items, units);
+            if (maxAttempts > 0) listener.onFailed(retryFailure);
+            if (!discard.isEmpty()) listener.onDiscarded(discard.size(), discardFailure);
+        });
+    }
+
+    // Failures a later attempt would hit again
+    private static boolean isPermanent(Exception e) {
+        if (StockMovementEngine.asInsufficientStock(e) != null) return true;
+        if (!(e instanceof FirebaseFirestoreException)) return false;
+        switch (((FirebaseFirestoreException) e).getCode()) {
+            case PERMISSION_DENIED:
+            case UNAUTHENTICATED:
+            case NOT_FOUND:
+            case INVALID_ARGUMENT:
+            case OUT_OF_RANGE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // Merges a failed movement back into whatever was scanned since
+    private void requeue(String itemId, int delta) {
+        Integer current = pending.get(itemId);
+        int merged = (current != null ? current : 0) + delta;
+        if (merged == 0) {
+            pending.remove(itemId);
+        } else {
+            pending.put(itemId, merged);
+        }
+        pendingUnits += Math.abs(delta);
+    }
+
+    /**
+     * Flushes what is pending and detaches the listener. Movements already in flight still finish
+     * (and failed ones still get their remaining attempts), but nothing is reported any more.
+     */
+    public void close() {
+        listener = null;
+        flush();
+    }
+}
@@ -0,0 +1,357 @@
+package com.example.inventory.repository;
+
+import com.example.inventory.model.Batch;
+import com.example.inventory.model.Transaction;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single entry point for stock changes.
+ * The quantity update, the "transactions" history record, FIFO batch consumption (or the new
+ * batch for stock-in) and the stats counters are committed in ONE Firestore transaction, so
+ * concurrent stock-outs from several devices can't double-spend the same batch.
+ * The same transaction maintains the item's FIFO valuation totals (see InventoryValuation):
+ * stock-in adds qty * price at receipt, stock-out moves the consumed batches' cost into COGS.
+ * It also adds the movement to the daily/weekly history rollups (see TransactionRollups) and,
+ * for stock-outs, updates the item's consumption velocity (see StockForecast); the stored
+ * stockStatus is recomputed with every quantity change (see StockStatus).
+ *
+ * Firestore transactions can't run queries, so the FIFO candidates (see FifoBatches) are loaded
+ * first and then re-read inside the transaction. If they changed underneath us and no longer cover the
+ * stock-out, the whole movement is retried with a fresh candidate list.
+ *
+ * Offline trade-off: transactions need the server, so when the item can only be read from the
+ * cache (or the transaction fails as unavailable) the movement is written as a queued WriteBatch
+ * instead: quantity and valuation as increments, the history record, rollups and stats. That batch
+ * can't read the FIFO queue, so a stock-out is costed at the current price and its units are
+ * parked in "fifoPendingOut" / "fifoPendingCogs"; the next online movement of the item (or
+ * {@link #reconcile}, see FifoReconciler) consumes those units from the oldest batches and books
+ * the difference to COGS, and on the latest offline record so the history's "cogs" still adds up
+ * to the item totals. Offline stock-outs are checked against the cached quantity only.
+ */
+public class StockMovementEngine {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    /** Thrown when a stock-out would take the quantity below zero. */
+    public static class InsufficientStockException extends RuntimeException {
+        public final int available;
+
+        public InsufficientStockException(int available) {
+            super("Only " + available + " in stock");
+            this.available = available;
+        }
+    }
+
+    /** The pre-queried FIFO candidates went stale; the movement is retried. */
+    private static class StaleBatchesException extends RuntimeException {
+        StaleBatchesException() { super("FIFO batches changed concurrently"); }
+    }
+
+    public static class Result {
+        public final String itemName;
+        public final int previousQty;
+        public final int newQty;
+        public final double cogs;
+
+        Result(String itemName, int previousQty, int newQty, double cogs) {
+            this.itemName = itemName;
+            this.previousQty = previousQty;
+            this.newQty = newQty;
+            this.cogs = cogs;
+        }
+
+        public int getDelta() { return newQty - previousQty; }
+    }
+
+    private final FirebaseFirestore db;
+
+    public StockMovementEngine(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    /** Adds (positive) or removes (negative) stock. */
+    public Task<Result> changeBy(String itemId, int delta) {
+        return run(itemId, delta, false, 1);
+    }
+
+    /** Sets an absolute quantity (manual count); the difference is computed inside the transaction. */
+    public Task<Result> setQuantity(String itemId, int newQty) {
+        return run(itemId, newQty, true, 1);
+    }
+
+    /** Consumes FIFO batches for stock-outs that were queued offline; no-op when there are none. */
+    public Task<Result> reconcile(String itemId) {
+        return run(itemId, 0, false, 1);
+    }
+
+    private Task<Result> run(String itemId, int amount, boolean absolute, int attempt) {
+        DocumentReference itemRef = db.collection("inventory").document(itemId);
+
+        return itemRef.get()
+                .continueWithTask(t -> {
+                    if (!t.isSuccessful()) return Tasks.<Result>forException(t.getException());
+                    DocumentSnapshot item = t.getResult();
+                    // Served from the cache: the server is unreachable, so a transaction would fail
+                    if (item.getMetadata().isFromCache()) return queueOffline(item, amount, absolute);
+
+                    int qty = intField(item, "quantity");
+                    int needed = Math.max(0, absolute ? qty - amount : -amount)
+                            + intField(item, FifoBatches.FIELD_PENDING_OUT);
+
+                    return FifoBatches.loadCandidates(db, item, needed).continueWithTask(c -> {
+                        if (!c.isSuccessful()) return Tasks.<Result>forException(c.getException());
+                        List<DocumentSnapshot> candidates = c.getResult();
+                        return db.runTransaction(transaction ->
+                                apply(transaction, itemRef, amount, absolute, qty, candidates))
+                                .continueWithTask(tx -> {
+                                    // Connection lost after the reads: queue it like any offline movement
+                                    if (!tx.isSuccessful() && isUnavailable(tx.getException())) {
+                                        return queueOffline(item, amount, absolute);
+                                    }
+                                    return tx;
+                                });
+                    });
+                })
+                .continueWithTask(t -> {
+                    if (!t.isSuccessful() && isStale(t.getException()) && attempt < MAX_ATTEMPTS) {
+                        return run(itemId, amount, absolute, attempt + 1);
+                    }
+                    return t;
+                });
+    }
+
+    private Result apply(com.google.firebase.firestore.Transaction transaction, DocumentReference itemRef, int amount,
+                         boolean absolute, int expectedQty, List<DocumentSnapshot> candidates)
+            throws FirebaseFirestoreException {
+        // ---- READS (all reads must happen before any write) ----
+        DocumentSnapshot item = transaction.get(itemRef);
+        if (!item.exists()) {
+            throw new FirebaseFirestoreException("Item not found", FirebaseFirestoreException.Code.NOT_FOUND);
+        }
+
+        String name = item.getString("name");
+        String category = item.getString("category");
+        Double priceDouble = item.getDouble("price");
+        double price = (priceDouble != null) ? priceDouble : 0.0;
+        int currentQty = intField(item, "quantity");
+        // Stock-outs queued offline, costed at the price of the day until their batches are consumed
+        int pendingOut = intField(item, FifoBatches.FIELD_PENDING_OUT);
+        Double pendingCogsDouble = item.getDouble(FifoBatches.FIELD_PENDING_COGS);
+        double pendingCogs = (pendingCogsDouble != null) ? pendingCogsDouble : 0.0;
+        String pendingRecord = item.getString(FifoBatches.FIELD_PENDING_RECORD);
+
+        int delta = absolute ? amount - currentQty : amount;
+        int newQty = currentQty + delta;
+        if (newQty < 0) throw new InsufficientStockException(currentQty);
+        if (delta == 0 && pendingOut == 0) return new Result(name, currentQty, currentQty, 0.0);
+
+        // Items not valued yet start from their quantity at the current price
+        Double storedValue = item.getDouble(InventoryValuation.FIELD_VALUE);
+        double fifoValue = (storedValue != null) ? storedValue : currentQty * price;
+        double cogs = 0.0;        // This movement
+        double pendingActual = 0.0; // The queued offline units, at FIFO cost
+        boolean consumes = delta < 0 || pendingOut > 0;
+
+        List<DocumentReference> consumedRefs = new ArrayList<>();
+        List<Integer> consumedRemaining = new ArrayList<>();
+        String newHead = null;
+        if (consumes) {
+            // Queued units left the shelf first, so they take the oldest batches
+            int pendingLeft = pendingOut;
+            int needed = pendingOut + Math.max(0, -delta);
+            // The candidates were sized for the quantity we saw before the transaction
+            boolean stale = currentQty != expectedQty;
+            int next = 0;
+            for (; next < candidates.size() && needed > 0; next++) {
+                DocumentSnapshot candidate = candidates.get(next);
+                DocumentSnapshot fresh = transaction.get(candidate.getReference());
+                int remaining = FifoBatches.remaining(fresh);
+                if (remaining != FifoBatches.remaining(candidate)) stale = true;
+                if (remaining <= 0) continue;
+
+                int take = Math.min(remaining, needed);
+                double unitCost = InventoryValuation.unitCost(fresh, price);
+                int forPending = Math.min(take, pendingLeft);
+                pendingLeft -= forPending;
+                pendingActual += forPending * unitCost;
+                cogs += (take - forPending) * unitCost;
+                consumedRefs.add(candidate.getReference());
+                consumedRemaining.add(remaining - take);
+                needed -= take;
+                if (remaining > take) newHead = candidate.getId();
+            }
+            // Items created before FIFO tracking may legitimately have fewer batch units than stock;
+            // a shortfall is only an error when it is caused by a concurrent change.
+            if (needed > 0 && stale) throw new StaleBatchesException();
+            // Untracked legacy units are costed at the current price
+            pendingActual += pendingLeft * price;
+            cogs += (needed - pendingLeft) * price;
+            // Head pointer is only a hint; loadCandidates validates it before trusting it
+            if (newHead == null && next < candidates.size()) newHead = candidates.get(next).getId();
+        }
+
+        // ---- WRITES ----
+        long now = System.currentTimeMillis();
+        Map<String, Object> itemUpdate = new HashMap<>();
+        itemUpdate.put("quantity", newQty);
+        if (delta > 0) fifoValue += delta * price;
+        if (consumes) {
+            // The offline estimate is already in COGS and the value; only the difference is booked
+            double booked = cogs + (pendingActual - pendingCogs);
+            // Nothing left means nothing to value; don't carry rounding drift forward
+            fifoValue = (newQty == 0) ? 0.0 : Math.max(0.0, fifoValue - booked);
+            itemUpdate.put(FifoBatches.FIELD_HEAD, newHead != null ? newHead : FieldValue.delete());
+            itemUpdate.put(InventoryValuation.FIELD_COGS, FieldValue.increment(booked));
+            itemUpdate.put(InventoryValuation.FIELD_COGS_BY_MONTH + "." + InventoryValuation.monthKey(new Date()),
+                    FieldValue.increment(booked));
+            if (pendingOut > 0) {
+                itemUpdate.put(FifoBatches.FIELD_PENDING_OUT, FieldValue.delete());
+                itemUpdate.put(FifoBatches.FIELD_PENDING_COGS, FieldValue.delete());
+                itemUpdate.put(FifoBatches.FIELD_PENDING_RECORD, FieldValue.delete());
+            }
+        }
+        if (delta < 0) StockForecast.onStockOut(item, -delta, now, itemUpdate);
+        itemUpdate.put(InventoryValuation.FIELD_VALUE, fifoValue);
+        if (delta != 0) {
+            itemUpdate.put(StockStatus.FIELD, StockStatus.of(item, newQty));
+            itemUpdate.put(StockStatus.FIELD_UPDATED_AT, FieldValue.serverTimestamp());
+        }
+        transaction.update(itemRef, itemUpdate);
+
+        // The history records must add up to the item's COGS: the offline sale's record takes the
+        // difference between its estimate and the FIFO cost (it was committed with the pending fields)
+        if (pendingOut > 0 && pendingRecord != null) {
+            transaction.update(db.collection("transactions").document(pendingRecord),
+                    "cogs", FieldValue.increment(pendingActual - pendingCogs));
+        }
+
+        if (delta == 0) {
+            // Reconciliation only: no movement to record
+            archiveConsumed(transaction, consumedRefs, consumedRemaining);
+            return new Result(name, currentQty, currentQty, 0.0);
+        }
+
+        Transaction record = new Transaction(itemRef.getId(), name, item.getString("barcode"),
+                delta > 0 ? "IN" : "OUT", Math.abs(delta), newQty, FirebaseAuth.getInstance().getUid());
+        record.setCogs(cogs);
+        transaction.set(db.collection("transactions").document(), record);
+        TransactionRollups.apply(transaction, db, record.getTimestamp(),
+                new TransactionRollups.Delta().add(itemRef.getId(), name, category, record.getType(), Math.abs(delta)));
+
+        archiveConsumed(transaction, consumedRefs, consumedRemaining);
+        if (delta > 0) transaction.set(itemRef.collection("batches").document(), new Batch(delta, price));
+
+        InventoryStats.applyDelta(transaction, db, category, delta, delta * price, 0);
+        return new Result(name, currentQty, newQty, cogs);
+    }
+
+    private static void archiveConsumed(com.google.firebase.firestore.Transaction transaction,
+                                        List<DocumentReference> refs, List<Integer> remaining) {
+        for (int i = 0; i < refs.size(); i++) {
+            int left = remaining.get(i);
+            if (left > 0) {
+                transaction.update(refs.get(i), "remainingQty", left);
+            } else {
+                // Archive: drops out of the active queue for good
+                transaction.update(refs.get(i), "remainingQty", 0, "active", false);
+            }
+        }
+    }
+
+    /**
+     * The movement as a plain WriteBatch, which Firestore keeps in its persistent queue until the
+     * device reconnects; the cache (and every listener) sees it immediately. Resolves right away
+     * instead of waiting for the server acknowledgement, which never comes while offline.
+     */
+    private Task<Result> queueOffline(DocumentSnapshot item, int amount, boolean absolute) {
+        if (!item.exists()) {
+            return Tasks.forException(new FirebaseFirestoreException("Item not found", FirebaseFirestoreException.Code.NOT_FOUND));
+        }
+        String name = item.getString("name");
+        String category = item.getString("category");
+        Double priceDouble = item.getDouble("price");
+        double price = (priceDouble != null) ? priceDouble : 0.0;
+        int currentQty = intField(item, "quantity");
+
+        int delta = absolute ? amount - currentQty : amount;
+        int newQty = currentQty + delta;
+        if (newQty < 0) return Tasks.forException(new InsufficientStockException(currentQty));
+        if (delta == 0) return Tasks.forResult(new Result(name, currentQty, currentQty, 0.0));
+
+        DocumentReference itemRef = item.getReference();
+        WriteBatch batch = db.batch();
+        long now = System.currentTimeMillis();
+        Map<String, Object> itemUpdate = new HashMap<>();
+        itemUpdate.put("quantity", FieldValue.increment(delta));
+        double cogs = 0.0;
+        if (delta > 0) {
+            batch.set(itemRef.collection("batches").document(), new Batch(delta, price));
+        } else {
+            // Estimated at the current price; apply() swaps it for the FIFO cost once online
+            cogs = -delta * price;
+            itemUpdate.put(FifoBatches.FIELD_PENDING_OUT, FieldValue.increment(-delta));
+            itemUpdate.put(FifoBatches.FIELD_PENDING_COGS, FieldValue.increment(cogs));
+            itemUpdate.put(InventoryValuation.FIELD_COGS, FieldValue.increment(cogs));
+            itemUpdate.put(InventoryValuation.FIELD_COGS_BY_MONTH + "." + InventoryValuation.monthKey(new Date()),
+                    FieldValue.increment(cogs));
+            StockForecast.onStockOut(item, -delta, now, itemUpdate);
+        }
+        double valueDelta = (delta > 0) ? delta * price : -cogs;
+        Double storedValue = item.getDouble(InventoryValuation.FIELD_VALUE);
+        // An increment on a missing field would start from zero; legacy items start from qty * price
+        itemUpdate.put(InventoryValuation.FIELD_VALUE, (storedValue != null)
+                ? FieldValue.increment(valueDelta)
+                : Math.max(0.0, currentQty * price + valueDelta));
+        itemUpdate.put(StockStatus.FIELD, StockStatus.of(item, newQty));
+        itemUpdate.put(StockStatus.FIELD_UPDATED_AT, FieldValue.serverTimestamp());
+        DocumentReference recordRef = db.collection("transactions").document();
+        if (delta < 0) itemUpdate.put(FifoBatches.FIELD_PENDING_RECORD, recordRef.getId());
+        batch.update(itemRef, itemUpdate);
+
+        Transaction record = new Transaction(itemRef.getId(), name, item.getString("barcode"),
+                delta > 0 ? "IN" : "OUT", Math.abs(delta), newQty, FirebaseAuth.getInstance().getUid());
+        record.setCogs(cogs);
+        batch.set(recordRef, record);
+        TransactionRollups.apply(batch, db, record.getTimestamp(),
+                new TransactionRollups.Delta().add(itemRef.getId(), name, category, record.getType(), Math.abs(delta)));
+        InventoryStats.applyDelta(batch, db, category, delta, delta * price, 0);
+
+        batch.commit();
+        return Tasks.forResult(new Result(name, currentQty, newQty, cogs));
+    }
+
+    private static boolean isUnavailable(Exception e) {
+        return e instanceof FirebaseFirestoreException
+                && ((FirebaseFirestoreException) e).getCode() == FirebaseFirestoreException.Code.UNAVAILABLE;
+    }
+
+    private static boolean isStale(Exception e) {
+        return e instanceof StaleBatchesException || (e != null && e.getCause() instanceof StaleBatchesException);
+    }
+
+    /** Unwraps the insufficient-stock error from a failed task, or returns null. */
+    public static InsufficientStockException asInsufficientStock(Exception e) {
+        if (e instanceof InsufficientStockException) return (InsufficientStockException) e;
+        if (e != null && e.getCause() instanceof InsufficientStockException) return (InsufficientStockException) e.getCause();
+        return null;
+    }
+
+    private static int intField(DocumentSnapshot doc, String field) {
+        Long value = doc.getLong(field);
+        return (value != null) ? value.intValue() : 0;
+    }
+}
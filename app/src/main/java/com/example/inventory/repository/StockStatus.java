@@ -0,0 +1,75 @@
+package com.example.inventory.repository;
+
+import com.example.inventory.model.InventoryItem;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+
+import java.util.Arrays;
+
+/**
+ * The "stockStatus" field (OK / LOW / OUT) stored on every item, written in the same transaction
+ * or batch as the quantity it describes. The stored value depends on the item's quantity and its
+ * own minStock only (LOW = at or below minStock), so it never goes stale while the item sits
+ * untouched and every device computes the same value.
+ *
+ * Because it is stored, "what needs restocking" is one indexed query ({@link #alerts}) instead of
+ * evaluating thresholds over the whole catalog. Lists show {@link #current}, which also raises an
+ * item to LOW once it reaches its forecast reorder point (StockForecast, never below minStock);
+ * that depends on the decaying velocity and the clock, so it is computed, never stored.
+ *
+ * Every write of the field also stamps "updatedAt" with the server time, so background checks can
+ * read only the items changed since their last run ({@link #changedSince}).
+ */
+public final class StockStatus {
+
+    public static final String FIELD = "stockStatus";
+    public static final String FIELD_UPDATED_AT = "updatedAt";
+
+    public static final String OK = "OK";
+    public static final String LOW = "LOW";
+    public static final String OUT = "OUT";
+
+    private StockStatus() {}
+
+    public static String of(int quantity, int reorderPoint) {
+        if (quantity <= 0) return OUT;
+        return (quantity <= reorderPoint) ? LOW : OK;
+    }
+
+    /** Stored status for a new quantity of a raw item document. */
+    public static String of(DocumentSnapshot item, int quantity) {
+        Long minStock = item.getLong("minStock");
+        return of(quantity, (minStock != null) ? minStock.intValue() : 5);
+    }
+
+    /** The value the stored field should have for a cached item. */
+    public static String stored(InventoryItem item) {
+        return of(item.getQuantity(), item.getMinStock());
+    }
+
+    /** Forecast status of a cached item: LOW from its reorder point at {@code now}. */
+    public static String compute(InventoryItem item, long now) {
+        return of(item.getQuantity(), StockForecast.reorderPoint(item, now));
+    }
+
+    /** Status to display (list colours, tabs): the forecast as of now. */
+    public static String current(InventoryItem item) {
+        return compute(item, System.currentTimeMillis());
+    }
+
+    /** Out-of-stock and low items, emptiest first (composite index in firestore.indexes.json). */
+    public static Query alerts(FirebaseFirestore db) {
+        return db.collection("inventory")
+                .whereIn(FIELD, Arrays.asList(OUT, LOW))
+                .orderBy("quantity", Query.Direction.ASCENDING);
+    }
+
+    /** Items whose quantity or status was written at or after {@code from}, oldest change first (single-field index). */
+    public static Query changedSince(FirebaseFirestore db, Timestamp from) {
+        return db.collection("inventory")
+                .whereGreaterThanOrEqualTo(FIELD_UPDATED_AT, from)
+                .orderBy(FIELD_UPDATED_AT, Query.Direction.ASCENDING);
+    }
+}
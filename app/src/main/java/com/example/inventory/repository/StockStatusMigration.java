@@ -0,0 +1,91 @@
+package com.example.inventory.repository;
+
+import com.example.inventory.model.InventoryItem;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the stored "stockStatus" honest for items the write paths can't cover exactly:
+ * items created before the field existed, and items whose status went stale (a batched stock-in
+ * computed from an outdated quantity). Differences are fixed in memory right away.
+ *
+ * The stored status depends on quantity and minStock only (see StockStatus), so every device
+ * computes the same correction and it never flips back. Each write is a transaction that re-reads
+ * the item and gives up unless quantity and minStock are still the ones the correction was
+ * computed from and the stored status still differs, so of several devices flushing the same
+ * correction only the first one writes.
+ */
+public class StockStatusMigration implements InventoryStore.ChangeListener {
+
+    private static final int MAX_IN_FLIGHT = 20;
+
+    private final FirebaseFirestore db;
+    private final Map<String, Correction> pending = new HashMap<>();
+    private final Set<String> running = new HashSet<>();
+
+    private static class Correction {
+        final int quantity;
+        final int minStock;
+        final String status;
+
+        Correction(int quantity, int minStock, String status) {
+            this.quantity = quantity;
+            this.minStock = minStock;
+            this.status = status;
+        }
+    }
+
+    public StockStatusMigration(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    @Override
+    public void onItemChanged(InventoryItem oldItem, InventoryItem item) {
+        if (item == null) return;
+        String status = StockStatus.stored(item);
+        if (status.equals(item.getStockStatus())) {
+            pending.remove(item.getId());
+            return;
+        }
+        item.setStockStatus(status);
+        pending.put(item.getId(), new Correction(item.getQuantity(), item.getMinStock(), status));
+    }
+
+    /**
+     * Starts a correcting transaction for queued items, a few at a time (the rest go out with the
+     * snapshots those writes cause). Main thread; call it for server snapshots only.
+     */
+    public void flush() {
+        Iterator<Map.Entry<String, Correction>> it = pending.entrySet().iterator();
+        while (it.hasNext() && running.size() < MAX_IN_FLIGHT) {
+            Map.Entry<String, Correction> entry = it.next();
+            String itemId = entry.getKey();
+            if (!running.add(itemId)) continue;
+            Correction correction = entry.getValue();
+            it.remove();
+
+            DocumentReference ref = db.collection("inventory").document(itemId);
+            db.runTransaction(transaction -> {
+                DocumentSnapshot current = transaction.get(ref);
+                if (!current.exists()) return null;
+                Long quantity = current.getLong("quantity");
+                if (quantity == null || quantity != correction.quantity) return null;
+                Long minStock = current.getLong("minStock");
+                // A missing minStock reads as 0 in the cached item too
+                if ((minStock != null ? minStock : 0L) != correction.minStock) return null;
+                if (correction.status.equals(current.getString(StockStatus.FIELD))) return null;
+                transaction.update(ref, StockStatus.FIELD, correction.status,
+                        StockStatus.FIELD_UPDATED_AT, FieldValue.serverTimestamp());
+                return null;
+            }).addOnCompleteListener(t -> running.remove(itemId));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.inventory.repository;
+
+import com.example.inventory.model.InventoryItem;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One-time backfill of "itemId" / "barcode" on history records written before they were tracked,
+ * so they show up in the per-item (itemId, timestamp) history query.
+ *
+ * Legacy records only carry the item name (sometimes with a "New: " prefix), so a record is
+ * linked only when exactly one catalog item has that name; ambiguous names are left alone, and so
+ * are "Deleted: " records, whose item is gone and whose name may since belong to a different one.
+ * Progress (the last processed document id) is saved in meta/transactionBackfill with every batch,
+ * so an interrupted run continues where it stopped, on any device.
+ */
+public class TransactionItemBackfill {
+
+    private static final int PAGE_SIZE = 400; // One page -> at most PAGE_SIZE updates + 1 progress write
+    private static final String NEW_PREFIX = "New: ";
+    private static final String DELETED_PREFIX = "Deleted: ";
+
+    private final FirebaseFirestore db;
+    private boolean started = false;
+
+    public TransactionItemBackfill(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    /** Starts the backfill unless it already ran (or is running) in this process. Main thread. */
+    public void runOnce(List<InventoryItem> catalog) {
+        if (started) return;
+        started = true;
+
+        // Name -> item, dropping names that aren't unique
+        Map<String, InventoryItem> byName = new HashMap<>();
+        Set<String> ambiguous = new HashSet<>();
+        for (InventoryItem item : catalog) {
+            if (item.getName() == null) continue;
+            if (byName.put(item.getName(), item) != null) ambiguous.add(item.getName());
+        }
+        for (String name : ambiguous) byName.remove(name);
+
+        DocumentReference progressRef = db.collection("meta").document("transactionBackfill");
+        progressRef.get().addOnSuccessListener(progress -> {
+            if (Boolean.TRUE.equals(progress.getBoolean("done"))) return;
+            processPage(progressRef, progress.getString("lastId"), byName);
+        });
+    }
+
+    private void processPage(DocumentReference progressRef, String lastId, Map<String, InventoryItem> byName) {
+        Query page = db.collection("transactions").orderBy(FieldPath.documentId()).limit(PAGE_SIZE);
+        if (lastId != null) page = page.startAfter(lastId);
+
+        page.get().addOnSuccessListener(snapshots -> {
+            List<DocumentSnapshot> docs = snapshots.getDocuments();
+            WriteBatch batch = db.batch();
+            for (DocumentSnapshot doc : docs) {
+                if (doc.getString("itemId") != null) continue;
+                InventoryItem item = byName.get(stripPrefix(doc.getString("itemName")));
+                if (item == null) continue;
+
+                Map<String, Object> link = new HashMap<>();
+                link.put("itemId", item.getId());
+                link.put("barcode", item.getBarcode());
+                batch.update(doc.getReference(), link);
+            }
+
+            boolean done = docs.size() < PAGE_SIZE;
+            Map<String, Object> progress = new HashMap<>();
+            progress.put("done", done);
+            if (!docs.isEmpty()) progress.put("lastId", docs.get(docs.size() - 1).getId());
+            batch.set(progressRef, progress, SetOptions.merge());
+
+            batch.commit().addOnSuccessListener(aVoid -> {
+                if (!done) processPage(progressRef, docs.get(docs.size() - 1).getId(), byName);
+            });
+        });
+    }
+
+    /** Catalog name a legacy record refers to, or null for records that can't be matched safely. */
+    private static String stripPrefix(String name) {
+        if (name == null || name.startsWith(DELETED_PREFIX)) return null;
+        return name.startsWith(NEW_PREFIX) ? name.substring(NEW_PREFIX.length()) : name;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.inventory.repository;
+
+import com.example.inventory.model.Transaction;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cursor pagination over a "transactions" query: each page is
+ * {@code query.startAfter(lastSnapshot).limit(pageSize)}, so opening the history
+ * costs one page no matter how long it is. Call {@link #loadNextPage()} as the list
+ * nears its end; {@link #reset(Query)} starts over with a new query (e.g. a date filter)
+ * and drops any page still in flight for the old one. Main thread only.
+ */
+public class TransactionPager {
+
+    public interface Callback {
+        void onPageLoaded(List<Transaction> page, boolean firstPage);
+        void onError(Exception e);
+    }
+
+    public static final int PAGE_SIZE = 50;
+
+    private final Callback callback;
+    private final int pageSize;
+    private Query query;
+    private DocumentSnapshot lastSnapshot;
+    private boolean loading = false;
+    private boolean hasMore = true;
+    // Bumped on reset so a late page from the previous query is ignored
+    private int generation = 0;
+
+    public TransactionPager(Query query, Callback callback) {
+        this(query, PAGE_SIZE, callback);
+    }
+
+    public TransactionPager(Query query, int pageSize, Callback callback) {
+        this.query = query;
+        this.pageSize = pageSize;
+        this.callback = callback;
+    }
+
+    public void reset(Query newQuery) {
+        query = newQuery;
+        lastSnapshot = null;
+        loading = false;
+        hasMore = true;
+        generation++;
+        loadNextPage();
+    }
+
+    public void loadNextPage() {
+        if (loading || !hasMore) return;
+        loading = true;
+
+        final int requestGeneration = generation;
+        final boolean firstPage = (lastSnapshot == null);
+        Query page = query.limit(pageSize);
+        if (lastSnapshot != null) page = page.startAfter(lastSnapshot);
+
+        page.get()
+                .addOnSuccessListener(snapshots -> {
+                    if (requestGeneration != generation) return;
+                    loading = false;
+
+                    List<DocumentSnapshot> docs = snapshots.getDocuments();
+                    List<Transaction> result = new ArrayList<>(docs.size());
+                    for (DocumentSnapshot doc : docs) {
+                        result.add(doc.toObject(Transaction.class));
+                    }
+                    hasMore = docs.size() == pageSize;
+                    if (!docs.isEmpty()) lastSnapshot = docs.get(docs.size() - 1);
+                    callback.onPageLoaded(result, firstPage);
+                })
+                .addOnFailureListener(e -> {
+                    if (requestGeneration != generation) return;
+                    loading = false;
+                    callback.onError(e);
+                });
+    }
+
+    public boolean isLoading() { return loading; }
+
+    public boolean hasMore() { return hasMore; }
+}
@@ -0,0 +1,167 @@
+package com.example.inventory.repository;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Daily and weekly totals of the "transactions" history, maintained with increments in the same
+ * write as the movement itself:
+ *
+ *   rollups_daily/{yyyy-MM-dd}, rollups_weekly/{yyyy-Www}
+ *       start, inQty, outQty, count, categories.{key}.in / .out
+ *   .../{bucket}/items/{itemId}
+ *       itemId, name, in, out
+ *
+ * The bucket document stays small (totals and categories only), so a month of history is ~30
+ * small reads instead of every raw record; per-item totals live in the sub-collection.
+ * Buckets follow the device's local calendar; weeks are ISO weeks (Monday first).
+ */
+public final class TransactionRollups {
+
+    public static final String DAILY = "rollups_daily";
+    public static final String WEEKLY = "rollups_weekly";
+
+    /** Receives the set-merge writes (a WriteBatch or a Transaction). */
+    private interface Sink {
+        void set(DocumentReference ref, Map<String, Object> data);
+    }
+
+    /** Movements to add to the buckets of one moment; several items and categories can be combined. */
+    public static class Delta {
+        long inQty, outQty;
+        int count;
+        final Map<String, long[]> categories = new HashMap<>(); // key -> {in, out}
+        final Map<String, long[]> items = new HashMap<>();      // itemId -> {in, out}
+        final Map<String, String> itemNames = new HashMap<>();
+
+        public Delta add(String itemId, String itemName, String category, String type, int qty) {
+            boolean in = "IN".equals(type);
+            if (in) inQty += qty; else outQty += qty;
+            count++;
+
+            String key = InventoryStats.categoryKey(category);
+            long[] cat = categories.get(key);
+            if (cat == null) categories.put(key, cat = new long[2]);
+            cat[in ? 0 : 1] += qty;
+
+            if (itemId != null) {
+                long[] item = items.get(itemId);
+                if (item == null) items.put(itemId, item = new long[2]);
+                item[in ? 0 : 1] += qty;
+                itemNames.put(itemId, itemName);
+            }
+            return this;
+        }
+
+        public boolean isEmpty() { return count == 0; }
+
+        /** Writes this delta costs in a batch: 2 bucket documents + 2 per item. */
+        public int writeCount() { return 2 + 2 * items.size(); }
+    }
+
+    private TransactionRollups() {}
+
+    public static void apply(WriteBatch batch, FirebaseFirestore db, Date when, Delta delta) {
+        write(db, when, delta, (ref, data) -> batch.set(ref, data, SetOptions.merge()));
+    }
+
+    public static void apply(Transaction transaction, FirebaseFirestore db, Date when, Delta delta) {
+        write(db, when, delta, (ref, data) -> transaction.set(ref, data, SetOptions.merge()));
+    }
+
+    /** Buckets whose start lies in [from, to], newest first. */
+    public static Query range(FirebaseFirestore db, boolean weekly, Date from, Date to) {
+        return db.collection(weekly ? WEEKLY : DAILY)
+                .whereGreaterThanOrEqualTo("start", from)
+                .whereLessThanOrEqualTo("start", to)
+                .orderBy("start", Query.Direction.DESCENDING);
+    }
+
+    /** Oldest daily bucket; rollups only exist from the day this version first wrote one. */
+    public static Query firstDay(FirebaseFirestore db) {
+        return db.collection(DAILY).orderBy("start", Query.Direction.ASCENDING).limit(1);
+    }
+
+    private static void write(FirebaseFirestore db, Date when, Delta delta, Sink sink) {
+        if (delta.isEmpty()) return;
+        writeBucket(db.collection(DAILY).document(dayKey(when)), dayStart(when), delta, sink);
+        writeBucket(db.collection(WEEKLY).document(weekKey(when)), weekStart(when), delta, sink);
+    }
+
+    private static void writeBucket(DocumentReference bucket, Date start, Delta delta, Sink sink) {
+        Map<String, Object> categories = new HashMap<>();
+        for (Map.Entry<String, long[]> entry : delta.categories.entrySet()) {
+            categories.put(entry.getKey(), inOut(entry.getValue()));
+        }
+
+        Map<String, Object> totals = new HashMap<>();
+        totals.put("start", start);
+        totals.put("inQty", FieldValue.increment(delta.inQty));
+        totals.put("outQty", FieldValue.increment(delta.outQty));
+        totals.put("count", FieldValue.increment(delta.count));
+        totals.put("categories", categories);
+        sink.set(bucket, totals);
+
+        for (Map.Entry<String, long[]> entry : delta.items.entrySet()) {
+            Map<String, Object> item = inOut(entry.getValue());
+            item.put("itemId", entry.getKey());
+            item.put("name", delta.itemNames.get(entry.getKey()));
+            sink.set(bucket.collection("items").document(entry.getKey()), item);
+        }
+    }
+
+    private static Map<String, Object> inOut(long[] values) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("in", FieldValue.increment(values[0]));
+        map.put("out", FieldValue.increment(values[1]));
+        return map;
+    }
+
+    public static Date dayStart(Date when) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTime(when);
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        return cal.getTime();
+    }
+
+    public static Date weekStart(Date when) {
+        Calendar cal = isoCalendar();
+        cal.setTime(dayStart(when));
+        cal.set(Calendar.DAY_OF_WEEK, Calendar.MONDAY);
+        return cal.getTime();
+    }
+
+    static String dayKey(Date when) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTime(when);
+        return String.format(Locale.US, "%04d-%02d-%02d",
+                cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH));
+    }
+
+    static String weekKey(Date when) {
+        Calendar cal = isoCalendar();
+        cal.setTime(when);
+        return String.format(Locale.US, "%04d-W%02d", cal.getWeekYear(), cal.get(Calendar.WEEK_OF_YEAR));
+    }
+
+    private static Calendar isoCalendar() {
+        Calendar cal = Calendar.getInstance();
+        cal.setFirstDayOfWeek(Calendar.MONDAY);
+        cal.setMinimalDaysInFirstWeek(4);
+        return cal;
+    }
+}